@@ -0,0 +1,80 @@
+/**
+ * Main program measuring the memory allocated by PriorityAlgorithm.computeOneStep on an input instance
+ * (bytes per step, compared with the size of the step recorded in the solution). <br>
+ * The measure uses the allocation counter of the current thread (com.sun.management.ThreadMXBean).
+ * 
+ * @author Gonzague de Carpentier (Ecole Polytechnique) 
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+public class BenchmarkAllocation {
+	
+	public static void main(String[] args) {
+		System.out.println("Allocation benchmark of PriorityAlgorithm.computeOneStep\n");
+		if(args.length<1) {
+			System.out.println("Error: one argument required: input file in JSON format");
+			System.out.println("Optional arguments: number of warmup runs (5), number of measured runs (10), 1 to use the direction masks (0)");
+			System.exit(0);
+		}
+		
+		Instance input=IO.loadInputInstance(args[0]); // read the input file
+		System.out.println(input);
+		int echauffement = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		DistanceField.masqueDirections = args.length > 3 && Integer.parseInt(args[3]) != 0;
+		
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("Error: the JVM does not count the memory allocated by a thread");
+			System.exit(0);
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long thread = Thread.currentThread().getId();
+		
+		PrintStream sortie = System.out;
+		PrintStream silence = new PrintStream(OutputStream.nullOutputStream());
+		
+		long octets = 0;
+		long etapes = 0;
+		long nanos = 0;
+		long stockage = 0;
+		int cycles = 0;
+		for (int r = 0; r < echauffement + runs; r++) {
+			System.setOut(silence);
+			PriorityAlgorithm algo = new PriorityAlgorithm(input);
+			long avant = 0, debut = 0;
+			int k = 0;
+			while (!algo.tousArrives && algo.solution.makespan() <= algo.limite && algo.kebloPendant < algo.kebloMax && !algo.cycle) {
+				avant = threads.getThreadAllocatedBytes(thread);
+				debut = System.nanoTime();
+				algo.computeOneStep();
+				if (r >= echauffement) {
+					nanos += System.nanoTime() - debut;
+					octets += threads.getThreadAllocatedBytes(thread) - avant;
+				}
+				k++;
+			}
+			System.setOut(sortie);
+			if (r >= echauffement) {
+				etapes += k;
+				stockage += algo.solution.memoryFootprint();
+				if (algo.cycle) {
+					cycles++;
+				}
+			}
+		}
+		
+		if (etapes == 0) {
+			System.out.println("No step computed");
+			return;
+		}
+		System.out.println(etapes + " steps measured over " + runs + " runs (" + cycles + " stopped on a configuration cycle)");
+		System.out.println("\tallocated: " + (octets / etapes) + " bytes per step");
+		System.out.println("\tstored: " + (stockage / etapes) + " bytes per step in the solution (instead of " + input.n + " unpacked)");
+		System.out.println("\ttime: " + (nanos / etapes / 1000) + " us per step");
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * Main program comparing the exact distance fields with the landmark oracle (LandmarkDistanceField)
+ * on an input instance: memory used by the distances to the targets, then success rate and makespan
+ * of several TenetAlgorithm runs with each oracle.
+ * 
+ * @author Gonzague de Carpentier (Ecole Polytechnique) 
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+public class BenchmarkDistance {
+	
+	public static void main(String[] args) {
+		System.out.println("Distance oracles benchmark\n");
+		if(args.length<1) {
+			System.out.println("Error: one argument required: input file in JSON format");
+			System.out.println("Optional arguments: number of runs (10), p (20), number of landmarks (16)");
+			System.exit(0);
+		}
+		
+		Instance input=IO.loadInputInstance(args[0]); // read the input file
+		System.out.println(input);
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int p = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		int k = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+		
+		PrintStream sortie = System.out;
+		PrintStream silence = new PrintStream(OutputStream.nullOutputStream());
+		
+		for (int reperes : new int[] {0, k}) {
+			DistanceField.nbReperes = reperes;
+			String nom = reperes == 0 ? "exact fields" : reperes + " landmarks";
+			
+			long debut = System.nanoTime();
+			DistanceOracle grid = DistanceField.creer(input, input.targets);
+			long duree = (System.nanoTime() - debut) / 1000000;
+			sortie.println(nom + ": " + (grid.memoryFootprint() >> 10) + " KB, built in " + duree + " ms");
+			if (grid instanceof LandmarkDistanceField) {
+				sortie.println("\texact fields kept for " + ((LandmarkDistanceField) grid).nbExacts + " robots out of " + input.n);
+			}
+			
+			int succes = 0;
+			long makespans = 0;
+			int meilleur = Integer.MAX_VALUE;
+			debut = System.nanoTime();
+			for (int r = 0; r < runs; r++) {
+				System.setOut(silence);
+				TenetAlgorithm algo = new TenetAlgorithm(input);
+				algo.p = p;
+				algo.run();
+				System.setOut(sortie);
+				if (algo.solutionFound) {
+					succes++;
+					makespans += algo.getSolution().makespan();
+					meilleur = Math.min(meilleur, algo.getSolution().makespan());
+				}
+			}
+			duree = (System.nanoTime() - debut) / 1000000;
+			sortie.print("\t" + succes + "/" + runs + " solutions found");
+			if (succes > 0) {
+				sortie.print(", mean makespan " + (makespans / (double) succes) + ", best " + meilleur);
+			}
+			sortie.println(" (" + (duree / runs) + " ms per run)");
+		}
+	}
+}
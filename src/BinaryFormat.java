@@ -0,0 +1,235 @@
+/**
+ * Compact binary format of the instances and solutions, loaded by mapping the file in memory. <br>
+ *
+ * Instance file: MAGIC_INSTANCE, VERSION, hash of the content, n, number of obstacles, bounding box, length of the name,
+ * then the name (UTF-8) and the coordinates (x of the starts, y of the starts, then the same for the targets and the obstacles). <br>
+ * Solution file: MAGIC_SOLUTION, VERSION, hash of the content, n, number of steps, length of the name, then the name and,
+ * for each step, the moves of the robots packed two per byte (robot 2k in the low nibble). <br>
+ * All integers are big-endian. The hash (FNV-1a of the data after the header) detects truncated or corrupted files.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class BinaryFormat {
+	
+	static final int MAGIC_INSTANCE = 0x434D5049; // "CMPI"
+	static final int MAGIC_SOLUTION = 0x434D5053; // "CMPS"
+	static final int VERSION = 1;
+	
+	/** Taille des parties fixes des en-tetes (en octets) **/
+	static final int ENTETE_INSTANCE = 44;
+	static final int ENTETE_SOLUTION = 28;
+	
+	/**
+	 * Renvoie le nombre magique du fichier (0 s'il est trop court ou illisible)
+	 */
+	public static int magic(String filename) {
+		try (FileChannel canal = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer tampon = ByteBuffer.allocate(4);
+			while (tampon.hasRemaining() && canal.read(tampon) > 0) {
+			}
+			return tampon.hasRemaining() ? 0 : tampon.getInt(0);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+	
+	/**
+	 * Ecrit l'instance au format binaire
+	 */
+	public static void saveInstance(Instance input, String output) throws IOException {
+		byte[] nom = nom(input.name);
+		int m = input.obstacles == null ? 0 : input.obstacles.size();
+		ByteBuffer donnees = ByteBuffer.allocate(nom.length + 4 * (4 * input.n + 2 * m));
+		donnees.put(nom);
+		ecrireCoordonnees(donnees, input.starts, input.n);
+		ecrireCoordonnees(donnees, input.targets, input.n);
+		ecrireCoordonnees(donnees, input.obstacles, m);
+		
+		ByteBuffer entete = ByteBuffer.allocate(ENTETE_INSTANCE);
+		entete.putInt(MAGIC_INSTANCE).putInt(VERSION).putLong(empreinte(donnees.array()));
+		entete.putInt(input.n).putInt(m).putInt(input.xmin).putInt(input.xmax).putInt(input.ymin).putInt(input.ymax);
+		entete.putInt(nom.length);
+		sauvegarder(entete, donnees, output);
+	}
+	
+	/**
+	 * Charge une instance ecrite par saveInstance
+	 */
+	public static Instance loadInstance(String filename) throws IOException {
+		ByteBuffer tampon = projeter(filename);
+		if (tampon.remaining() < ENTETE_INSTANCE || tampon.getInt() != MAGIC_INSTANCE || tampon.getInt() != VERSION) {
+			throw new Error("Error: " + filename + " is not a binary instance file (version " + VERSION + ")");
+		}
+		long empreinte = tampon.getLong();
+		int n = tampon.getInt();
+		int m = tampon.getInt();
+		tampon.position(tampon.position() + 16); // la boite englobante est recalculee par Instance
+		int longueurNom = tampon.getInt();
+		verifier(tampon, (long) longueurNom + 4L * (4L * n + 2L * m), empreinte, filename);
+		
+		byte[] nom = new byte[longueurNom];
+		tampon.get(nom);
+		Coordinates starts = lireCoordonnees(tampon, n);
+		Coordinates targets = lireCoordonnees(tampon, n);
+		Coordinates obstacles = lireCoordonnees(tampon, m);
+		return new Instance(new String(nom, StandardCharsets.UTF_8), starts, targets, obstacles);
+	}
+	
+	/**
+	 * Ecrit la solution au format binaire (n robots)
+	 */
+	public static void saveSolution(Solution solution, int n, String output) throws IOException {
+		byte[] nom = nom(solution.name);
+		int parEtape = (n + 1) / 2;
+		int makespan = solution.makespan();
+		if (makespan > 0 && solution.getRobots() != n) {
+			throw new Error("Error: the solution has " + solution.getRobots() + " robots instead of " + n);
+		}
+		ByteBuffer donnees = ByteBuffer.allocate(nom.length + parEtape * makespan);
+		donnees.put(nom);
+		byte[] ligne = new byte[parEtape];
+		byte[] mouvements = new byte[n];
+		for (int k = 0; k < makespan; k++) {
+			solution.getStep(k, mouvements);
+			for (int j = 0; j < parEtape; j++) {
+				int bas = mouvements[2 * j];
+				int haut = 2 * j + 1 < n ? mouvements[2 * j + 1] : 0;
+				ligne[j] = (byte) (bas | (haut << 4));
+			}
+			donnees.put(ligne);
+		}
+		
+		ByteBuffer entete = ByteBuffer.allocate(ENTETE_SOLUTION);
+		entete.putInt(MAGIC_SOLUTION).putInt(VERSION).putLong(empreinte(donnees.array()));
+		entete.putInt(n).putInt(makespan).putInt(nom.length);
+		sauvegarder(entete, donnees, output);
+	}
+	
+	/**
+	 * Charge une solution ecrite par saveSolution (n est verifie)
+	 */
+	public static Solution loadSolution(String filename, int n) throws IOException {
+		ByteBuffer tampon = projeter(filename);
+		if (tampon.remaining() < ENTETE_SOLUTION || tampon.getInt() != MAGIC_SOLUTION || tampon.getInt() != VERSION) {
+			throw new Error("Error: " + filename + " is not a binary solution file (version " + VERSION + ")");
+		}
+		long empreinte = tampon.getLong();
+		int nFichier = tampon.getInt();
+		int makespan = tampon.getInt();
+		int longueurNom = tampon.getInt();
+		if (nFichier != n) {
+			throw new Error("Error: the solution " + filename + " has " + nFichier + " robots instead of " + n);
+		}
+		int parEtape = (n + 1) / 2;
+		verifier(tampon, (long) longueurNom + (long) parEtape * makespan, empreinte, filename);
+		
+		byte[] nom = new byte[longueurNom];
+		tampon.get(nom);
+		Solution solution = new Solution(new String(nom, StandardCharsets.UTF_8));
+		byte[] ligne = new byte[parEtape];
+		byte[] mouvements = new byte[n];
+		for (int k = 0; k < makespan; k++) {
+			tampon.get(ligne);
+			for (int i = 0; i < n; i++) {
+				mouvements[i] = (byte) ((ligne[i >> 1] >> ((i & 1) << 2)) & 0xf);
+			}
+			solution.addStep(mouvements);
+		}
+		return solution;
+	}
+	
+	/**
+	 * FONCTIONS SECONDAIRES-----------------------------------------------------------------------------------------------------------
+	 */
+	
+	static byte[] nom(String nom) {
+		return (nom == null ? "" : nom).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	static void ecrireCoordonnees(ByteBuffer donnees, Coordinates c, int m) {
+		for (int i = 0; i < m; i++) {
+			donnees.putInt(c.getX(i));
+		}
+		for (int i = 0; i < m; i++) {
+			donnees.putInt(c.getY(i));
+		}
+	}
+	
+	/**
+	 * Lit m abscisses puis m ordonnees d'un bloc (lecture groupee, sans objet par element)
+	 */
+	static Coordinates lireCoordonnees(ByteBuffer tampon, int m) {
+		int[][] positions = new int[2][m];
+		tampon.asIntBuffer().get(positions[0]);
+		tampon.position(tampon.position() + 4 * m);
+		tampon.asIntBuffer().get(positions[1]);
+		tampon.position(tampon.position() + 4 * m);
+		return new Coordinates(positions);
+	}
+	
+	/**
+	 * Verifie que les donnees qui suivent l'en-tete ont la bonne taille et la bonne empreinte
+	 */
+	static void verifier(ByteBuffer tampon, long taille, long empreinte, String filename) {
+		if (tampon.remaining() != taille) {
+			throw new Error("Error: the file " + filename + " is truncated or corrupted");
+		}
+		long h = 0xcbf29ce484222325L;
+		for (int k = tampon.position(); k < tampon.limit(); k++) {
+			h = (h ^ (tampon.get(k) & 0xff)) * 0x100000001b3L;
+		}
+		if (h != empreinte) {
+			throw new Error("Error: the file " + filename + " is corrupted");
+		}
+	}
+	
+	static long empreinte(byte[] donnees) {
+		long h = 0xcbf29ce484222325L;
+		for (int k = 0; k < donnees.length; k++) {
+			h = (h ^ (donnees[k] & 0xff)) * 0x100000001b3L;
+		}
+		return h;
+	}
+	
+	static MappedByteBuffer projeter(String filename) throws IOException {
+		try (FileChannel canal = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+		}
+	}
+	
+	/**
+	 * Ecrit l'en-tete et les donnees sous un nom temporaire, puis renomme le fichier
+	 */
+	static void sauvegarder(ByteBuffer entete, ByteBuffer donnees, String output) throws IOException {
+		Path fichier = Paths.get(output).toAbsolutePath();
+		if (fichier.getParent() != null) {
+			Files.createDirectories(fichier.getParent());
+		}
+		Path temporaire = SolutionWriter.temporaire(fichier);
+		try {
+			try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				entete.flip();
+				donnees.flip();
+				while (entete.hasRemaining() || donnees.hasRemaining()) {
+					canal.write(new ByteBuffer[] {entete, donnees});
+				}
+				canal.force(true); // les donnees avant le renommage (voir SolutionWriter.ecrireFichier)
+			}
+			SolutionWriter.remplacer(temporaire, fichier);
+		} finally {
+			Files.deleteIfExists(temporaire);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Ordre des robots (ou des cibles) selon une cle entiere, en general une distance. <br>
+ * Les cles sont de petits entiers : un tri par denombrement donne l'ordre en O(n + amplitude des cles),
+ * sans boxing ni comparateur. Le tri est stable : a cle egale, l'ordre precedent est conserve
+ * (l'ordre des indices apres initialiser()).
+ * 
+ * @author Gonzague de Carpentier (Ecole Polytechnique) 
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+import java.util.Arrays;
+
+public class BucketOrder {
+	
+	/** Nombre d'elements **/
+	public final int n;
+	
+	/** ordre[k] est le k-ieme element apres le dernier tri **/
+	public final int[] ordre;
+	
+	/** cles[i] est la cle de l'element i, a remplir avant chaque tri **/
+	public final int[] cles;
+	
+	/** Tampon de l'ordre precedent et compteurs par cle, reutilises d'un tri a l'autre **/
+	private final int[] tampon;
+	private int[] compte = new int[64];
+	
+	public BucketOrder(int n) {
+		this.n = n;
+		ordre = new int[n];
+		cles = new int[n];
+		tampon = new int[n];
+		initialiser();
+	}
+	
+	/**
+	 * Remet l'ordre des indices (0, 1, ..., n-1)
+	 */
+	public void initialiser() {
+		for (int i = 0; i < n; i++) {
+			ordre[i] = i;
+		}
+	}
+	
+	/**
+	 * Trie ordre selon les cles, par ordre croissant ou decroissant, de maniere stable
+	 */
+	public void trier(boolean decroissant) {
+		trier(decroissant, n);
+	}
+	
+	/**
+	 * Trie seulement les m premiers elements de ordre (les cles des autres elements sont ignorees)
+	 */
+	public void trier(boolean decroissant, int m) {
+		if (m == 0) {
+			return;
+		}
+		int min = cles[ordre[0]], max = min;
+		for (int k = 1; k < m; k++) {
+			int cle = cles[ordre[k]];
+			if (cle < min) min = cle;
+			if (cle > max) max = cle;
+		}
+		int amplitude = max - min + 1;
+		if (compte.length < amplitude + 1) {
+			compte = new int[Math.max(amplitude + 1, 2 * compte.length)];
+		}
+		
+		// Histogramme des cles, rangees de la premiere a la derniere dans l'ordre voulu
+		Arrays.fill(compte, 0, amplitude + 1, 0);
+		for (int k = 0; k < m; k++) {
+			compte[rang(cles[ordre[k]], min, max, decroissant) + 1]++;
+		}
+		for (int r = 0; r < amplitude; r++) {
+			compte[r + 1] += compte[r];
+		}
+		
+		// Placement stable : on parcourt l'ordre precedent
+		System.arraycopy(ordre, 0, tampon, 0, m);
+		for (int k = 0; k < m; k++) {
+			int i = tampon[k];
+			ordre[compte[rang(cles[i], min, max, decroissant)]++] = i;
+		}
+	}
+	
+	private static int rang(int cle, int min, int max, boolean decroissant) {
+		return decroissant ? max - cle : cle - min;
+	}
+}
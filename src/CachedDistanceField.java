@@ -0,0 +1,57 @@
+/**
+ * Distance fields whose slabs come from a {@link DistanceCache}: they are shared with the other
+ * algorithms working on the same instance and are never modified.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+import java.util.stream.IntStream;
+
+public class CachedDistanceField extends DistanceField {
+	
+	/** tranches[i] contient le champ (partage) du robot i : un seul des deux tableaux est utilise **/
+	final short[][] tranchesCourtes;
+	final int[][] tranchesLongues;
+	
+	/**
+	 * Build the fields on the region and obstacles of 'region' (whose table is not allocated), reading
+	 * or filling the cache
+	 */
+	CachedDistanceField(DistanceField region, DistanceCache cache) {
+		super(region);
+		Object[] tranches = new Object[n];
+		ThreadLocal<int[]> files = ThreadLocal.withInitial(() -> new int[tailleTranche]);
+		IntStream.range(0, n).parallel().forEach(i -> tranches[i] = cache.tranche(this, i, files.get()));
+		
+		if (courtes()) {
+			tranchesCourtes = new short[n][];
+			tranchesLongues = null;
+			for (int i = 0; i < n; i++) {
+				tranchesCourtes[i] = (short[]) tranches[i];
+			}
+		} else {
+			tranchesCourtes = null;
+			tranchesLongues = new int[n][];
+			for (int i = 0; i < n; i++) {
+				tranchesLongues[i] = (int[]) tranches[i];
+			}
+		}
+	}
+	
+	@Override
+	int distanceDansRegion(int i, int c) {
+		if (tranchesCourtes != null) {
+			return tranchesCourtes[i][c];
+		}
+		return tranchesLongues[i][c];
+	}
+	
+	/**
+	 * Return the memory referenced by the fields (in bytes), graph of the free cells included: the slabs are shared with the cache
+	 */
+	@Override
+	public long memoryFootprint() {
+		return 16L * n + memoireObstacles() + tailleTable();
+	}
+}
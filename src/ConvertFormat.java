@@ -0,0 +1,38 @@
+/**
+ * Main program converting instances and solutions between the JSON format and the binary format of {@link BinaryFormat}. <br>
+ * The input format is detected from the content of the file, the output format from the extension of the output file
+ * (".json" for JSON, anything else for binary).
+ * 
+ * @author Gonzague de Carpentier (Ecole Polytechnique) 
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+public class ConvertFormat {
+	
+	public static void main(String[] args) {
+		System.out.println("Instance and solution format converter\n");
+		if(args.length<2) {
+			System.out.println("Error: two arguments required to convert an instance: input file, output file");
+			System.out.println("To convert a solution: instance file, solution file, output file");
+			System.exit(0);
+		}
+		
+		Instance input=IO.loadInputInstance(args[0]); // read the input file
+		String output=args[args.length-1];
+		boolean json=output.endsWith(".json");
+		
+		if(args.length==2) {
+			if(json)
+				IO.saveInstanceToJSON(input, output);
+			else
+				IO.saveInstanceToBinary(input, output);
+			return;
+		}
+		
+		Solution solution=IO.loadSolution(args[1], input.n);
+		if(json)
+			IO.saveSolutionToJSON(solution, output);
+		else
+			IO.saveSolutionToBinary(solution, input.n, output);
+	}
+}
@@ -6,7 +6,6 @@
  */
 
 import java.util.LinkedList;
-import java.util.Arrays;
 import java.util.Random;
 
 public class DistanceAlgorithm extends MotionAlgorithm {
@@ -46,48 +45,44 @@ public class DistanceAlgorithm extends MotionAlgorithm {
 	public int[][] box; 
 	
 	
-	/** Bounding box for grid **/
+	/** Bounding box of the instance **/
 	public int xmin; 
 	public int xmax;
 	public int ymin;
 	public int ymax;
 	
-	/** Bounding box for map **/
-    public int mxmin;
-    public int mxmax;
-    public int mymin;
-    public int mymax;
-    //FIXME : modifier la taille de la map en cours d'éxécution si un robot en sort
+	/** grid.getDistance(i,x,y) contient soit -1 si obstacle soit d(i,objectif(i)) **/
+	public DistanceOracle grid;
 	
-	/** grid[x][y][i] contient soit -1 si obstacle soit d(i,objectif(i)) **/
-	public Integer[][][] grid;
+	/** Distances aux cibles initiales, remises en place par retourMaison **/
+	public DistanceOracle gridMaison;
 	
-	/** map[dx][dy] contient k si le k-ieme robot de current est à la position (mxmin + dx, mymin + dy), -1 s'il y a un obstacle à cette position, et -2 sinon **/
-	public int[][] map;
-	public int[][] mapCible; 	
+	/** map.get(x,y) contient k si le k-ieme robot de current est à la position (x, y), -1 s'il y a un obstacle à cette position, et -2 sinon **/
+	public TiledMap map;
+	public TiledMap mapCible; 	
 	public Random rd = new Random();
 	public boolean tousArrives = false;
 	public boolean tousEnPlace = false;
 	
+	/** Ordre des robots (ou des cibles pendant la dilatation), recalcule a chaque tour **/
+	BucketOrder ordre;
+	
 	public DistanceAlgorithm(Instance input) {
 		this.input=input;
 		this.solution=new Solution(input.name); // create an empty solution (no steps at the beginning)
 		this.current=new Coordinates(this.input.starts.getPositions()); // initialize the current locations with the starting input locations
 		n = input.n;
 		currentMoves = new byte[n];
-		xmin = input.xmin - 1 -p; 
-		xmax = input.xmax + 1 + p;
-		ymin = input.ymin - 1- p;
-		ymax = input.ymax + 1+p;
-		mxmin = xmin - 2 * (xmax - xmin);
-	    mxmax = xmax + 2 * (xmax - xmin);
-	    mymin = ymin - 2 * (ymax - ymin);
-	    mymax = ymax + 2 * (ymax - ymin);
+		xmin = input.xmin - 1; 
+		xmax = input.xmax + 1;
+		ymin = input.ymin - 1;
+		ymax = input.ymax + 1;
 	    
 	    interdit = new byte[n]; 
 	    for (int i=0;i<n;i++) { 
 	    	interdit[i]=-1;
 	    }
+	    ordre = new BucketOrder(n);
 		
 		this.initMap();
 		this.initMapCible();
@@ -102,67 +97,23 @@ public class DistanceAlgorithm extends MotionAlgorithm {
 	    
 	    // Il faut initialiser les distances aux cibles initiales pour pouvoir trier et faire bouger les cibles
 	    this.initGrid();
+	    gridMaison = grid;
 	    
 	    //Dilatation des cibles 
 	    moveTargets(p); 
 	    
-	    this.initGrid();
+	    // Seuls les robots dont la cible a bouge ont besoin d'un nouveau champ
+	    grid = new PatchedDistanceField(input, gridMaison, input.targets, targets);
 	}
 	
 	
 	public void initGrid(){
-		
-		grid = new Integer[xmax - xmin + 1][ymax - ymin + 1][n];
-		
-	    /** Initialisation des obstacles **/ 
-	    for (int j=0; j<this.input.obstacles.size();j++) { 
-	    	int x = this.input.obstacles.getX(j);
-	    	int y = this.input.obstacles.getY(j); 
-	        for (int i=0;i<n;i++) { 
-	        	grid[x-xmin][y-ymin][i]=-1;
-	        }
-	    }
-	    /** calcul des distances : parcours en largeur **/ 
-		for (int i=0;i<n;i++) { 
-		    LinkedList<int[]> Q;
-		    Q = new LinkedList<int[]>();
-		    int sourceX = targets.getX(i);
-		    int sourceY = targets.getY(i);
-		    grid[sourceX-xmin][sourceY-ymin][i]=0;
-		    Q.add(new int[] {sourceX-xmin,sourceY-ymin}) ; 
-			while (!Q.isEmpty()) {
-			    int[] caseTablo= Q.pop();
-			    int x = caseTablo[0];
-			    int y = caseTablo[1]; 
-			    
-			    for (int dx=-1;dx<=1;dx=dx+2) {
-			    	if (x+dx<=xmax-xmin&& x+dx>=0) {
-			            if (grid[x+dx][y][i] == null) {
-			                grid[x+dx][y][i] = grid[x][y][i]+1;
-			                Q.add(new int[] {x +dx,y});
-			            }
-			    	}
-			    } 
-		        for (int dy=-1;dy<=1;dy=dy+2) {
-		        	if (y+dy<=ymax-ymin&&y+dy>=0) {
-				        if (grid[x][y+dy][i] == null) {
-				            grid[x][y+dy][i]  = grid[x][y][i]+1;
-				            Q.add(new int[] {x,y+dy});
-				        }
-		        	}
-		        }
-			}
-		}
+		grid = DistanceField.creer(input, targets);
 	}
 	
 	public void initMap(){
-		map = new int[mxmax - mxmin + 1][mymax - mymin + 1];
+		map = new TiledMap(-2);
 		int x,y;
-	    for (int i = 0; i < map.length; i++){
-	        for (int j = 0; j < map[i].length; j++){
-	            map[i][j] = -2;
-	        }
-	    }
 	    for (int i = 0; i < input.n; i++){
 	        x = input.starts.getX(i);
 	        y = input.starts.getY(i);
@@ -178,13 +129,8 @@ public class DistanceAlgorithm extends MotionAlgorithm {
 	}
 	
 	public void initMapCible(){
-		mapCible = new int[mxmax - mxmin + 1][mymax - mymin + 1];
+		mapCible = new TiledMap(-2);
 		int x,y;
-	    for (int i = 0; i < mapCible.length; i++){
-	        for (int j = 0; j < mapCible[i].length; j++){
-	            mapCible[i][j] = -2;
-	        }
-	    }
 	    for (int i = 0; i < input.n; i++){
 	        x = input.targets.getX(i);
 	        y = input.targets.getY(i);
@@ -284,9 +230,9 @@ public class DistanceAlgorithm extends MotionAlgorithm {
 	 */
 	public void run() {
 		
-		while (!tousArrives && solution.steps.size() <= limite) {
+		while (!tousArrives && solution.makespan() <= limite) {
 			computeOneStep();
-			if (solution.steps.size()==q||tousEnPlace) { 
+			if (solution.makespan()==q||tousEnPlace) { 
 				retourMaison(); 
 			}
 		}
@@ -300,7 +246,7 @@ public class DistanceAlgorithm extends MotionAlgorithm {
 	public void computeOneStep() {
 	    int[] motion = new int[2]; // motion of one robot
 	    byte m; //motion of one robot as a byte
-	    Integer[] robots = initRobots();  // list of the robots in order of decreasing priority
+	    int[] robots = initRobots();  // list of the robots in order of decreasing priority
 	    int x, y, i, j;
 	    currentMoves = new byte[n];
 		for (i = 0; i < n; i++) {
@@ -328,18 +274,19 @@ public class DistanceAlgorithm extends MotionAlgorithm {
 	    executeMotions();
 	}
 	
-	public Integer[] initRobots() {
-		// On trie selon une comparaison des distances inversée (tri descendant) ) 
-		Integer[] robots = new Integer[n];
+	public int[] initRobots() {
+		// On trie selon les distances par ordre décroissant (à distance égale, par indice croissant) 
+		ordre.initialiser();
 		for (int i = 0; i<n; i++) {
-			robots[i] = i;
+			ordre.cles[i] = getDistance(i,current.getX(i),current.getY(i));
 		}
-		Arrays.sort(robots, (Integer a, Integer b) -> Integer.compare(getDistance(b,current.getX(b),current.getY(b)), getDistance(a,current.getX(a),current.getY(a))));
+		ordre.trier(true);
+		int[] robots = ordre.ordre;
 		
 		System.out.print("Tour : ");
 		System.out.print(solution.makespan());
 		System.out.print(" --- Distance Max : ");
-		System.out.print(getDistance(robots[0],current.getX(robots[0]),current.getY(robots[0])));
+		System.out.print(ordre.cles[robots[0]]);
 		System.out.print(" --- Atteinte par : ");
 		System.out.print(robots[0]);
 		System.out.println(" ");
@@ -506,8 +453,7 @@ public class DistanceAlgorithm extends MotionAlgorithm {
 	    	
 	    }
 	    
-	    this.initGrid();
-	    
+	    grid = gridMaison;
 	}
 	
 	public int[] calcBarycentre(int i) { 
@@ -593,16 +539,17 @@ public class DistanceAlgorithm extends MotionAlgorithm {
 	
 	
 	public void moveTargets(int p) { 
-		Integer[] cibles = new Integer[n];
 		int i; 
-		for (i=0; i<n;i++) { 
-			cibles[i]=i;
-		}
+		ordre.initialiser();
 		
 		for (int tour=0;tour<p;tour++) { 
-			Arrays.sort(cibles, (Integer a, Integer b) -> Integer.compare(getDistance(a,targets.getX(a),targets.getY(a)), getDistance(b,targets.getX(b),targets.getY(b))));
+			// Tri stable par distance croissante : à distance égale on garde l'ordre du tour précédent
+			for (i=0; i<n;i++) { 
+				ordre.cles[i] = getDistance(i,targets.getX(i),targets.getY(i));
+			}
+			ordre.trier(false);
 			for (int k=0;k<n;k++) { 
-				i = cibles[k];
+				i = ordre.ordre[k];
 				moveTarget(i);
 			}
 			
@@ -614,34 +561,30 @@ public class DistanceAlgorithm extends MotionAlgorithm {
 	 */
 	
 	public int getMap(int x, int y) { 
-		return map[x-mxmin][y-mymin];
+		return map.get(x, y);
 	}
 	
 	public int getMapCible(int x, int y) { 
-		return mapCible[x-mxmin][y-mymin];
+		return mapCible.get(x, y);
 	}
 	
 	public void setMap(int x, int y, int val) { 
-		map[x-mxmin][y-mymin]= val;
+		map.set(x, y, val);
 	}
 	
 	public void setMapCible(int x, int y, int val) { 
-		mapCible[x-mxmin][y-mymin]= val;
+		mapCible.set(x, y, val);
 	}
 	
 	
 	public int getDistance(int i,int x, int y){
 		/**Renvoie la distance du robot i à sa source **/
-		/** les deux premiers termes correspondent au retour au rectangle connu**/
-		int dRetour= Math.max(Math.max(y-ymax,ymin-y),0)+Math.max(Math.max(x-xmax,xmin-x),0);
-		return dRetour + grid[Math.max(Math.min(x, xmax),xmin)-xmin][Math.max(Math.min(y, ymax),ymin)-ymin][i];
+		return grid.getDistance(i, x, y);
 	}
 	
 	public int gain(int i, int[] motion) { 
 		//Retourne +1 si jamais le mouv plait � i, -1 si �a lui plait pas et 0 sinon 
-		int x = this.current.getX(i);
-		int y = this.current.getY(i);
-		return getDistance(i,x,y) - getDistance(i,x+motion[0],y+motion[1]);
+		return grid.gain(i, current.getX(i), current.getY(i), motion);
 	}
 	
 	public void afficheGrid(int i) {
@@ -0,0 +1,136 @@
+/**
+ * Cache of the distance fields to the targets of an instance, shared by all the runs on this instance
+ * (e.g. the successive TenetAlgorithm runs of OptimizeMakespan). <br>
+ *
+ * The obstacles and the targets of an instance never change, so the field of a target cell over a given
+ * region is computed once. The cache is thread-safe. <br>
+ *
+ * If a directory is set, the fields are also stored on disk and memory-mapped (see {@link MappedDistanceField}),
+ * so that they are shared with the other processes working on the same instance.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DistanceCache {
+	
+	/** Caches enregistres, indexes par l'ensemble d'obstacles (partage par toutes les instances derivees d'une meme instance) **/
+	static final Map<Coordinates, DistanceCache> caches = Collections.synchronizedMap(new WeakHashMap<Coordinates, DistanceCache>());
+	
+	/** Repertoire des fichiers de champs, null pour ne garder les champs qu'en memoire **/
+	public static String repertoire = null;
+	
+	/** Nom de l'instance **/
+	final String nom;
+	
+	/** Cibles de l'instance **/
+	final int[] cibleX;
+	final int[] cibleY;
+	
+	/** Champs deja calcules (short[] ou int[]), indexes par la region et la case cible **/
+	final ConcurrentHashMap<Cle, Object> tranches = new ConcurrentHashMap<Cle, Object>();
+	
+	/** Champs projetes en memoire depuis le repertoire, indexes par la region **/
+	final ConcurrentHashMap<Cle, MappedDistanceField> fichiers = new ConcurrentHashMap<Cle, MappedDistanceField>();
+	
+	DistanceCache(Instance input) {
+		nom = input.name;
+		cibleX = new int[input.n];
+		cibleY = new int[input.n];
+		for (int i = 0; i < input.n; i++) {
+			cibleX[i] = input.targets.getX(i);
+			cibleY[i] = input.targets.getY(i);
+		}
+	}
+	
+	/**
+	 * Register an instance: the distance fields to its targets will then be shared by all algorithms
+	 * working on its obstacles
+	 */
+	public static DistanceCache enregistrer(Instance input) {
+		return caches.computeIfAbsent(input.obstacles, obstacles -> new DistanceCache(input));
+	}
+	
+	/**
+	 * Renvoie le cache de l'instance enregistree ayant les obstacles de input et les cibles sources, null s'il n'y en a pas
+	 */
+	static DistanceCache trouver(Instance input, Coordinates sources) {
+		DistanceCache cache = caches.get(input.obstacles);
+		if (cache == null || cache.cibleX.length != sources.size()) {
+			return null;
+		}
+		for (int i = 0; i < sources.size(); i++) {
+			if (cache.cibleX[i] != sources.getX(i) || cache.cibleY[i] != sources.getY(i)) {
+				return null;
+			}
+		}
+		return cache;
+	}
+	
+	/**
+	 * Renvoie les champs des cibles sur la region de champ (dont la table n'est pas allouee)
+	 */
+	DistanceOracle champ(DistanceField region) {
+		if (repertoire != null) {
+			Cle cle = new Cle(region.xmin, region.xmax, region.ymin, region.ymax, 0, 0);
+			MappedDistanceField projete = fichiers.computeIfAbsent(cle, c -> MappedDistanceField.ouvrir(region, repertoire, nom));
+			if (projete != null) {
+				return projete;
+			}
+		}
+		return new CachedDistanceField(region, this);
+	}
+	
+	/**
+	 * Renvoie le champ de la source du robot i sur la region de champ, en le calculant s'il n'est pas encore en cache
+	 */
+	Object tranche(DistanceField champ, int i, int[] file) {
+		Cle cle = new Cle(champ.xmin, champ.xmax, champ.ymin, champ.ymax, champ.sourceX[i], champ.sourceY[i]);
+		return tranches.computeIfAbsent(cle, c -> champ.calculerTranche(i, file));
+	}
+	
+	/**
+	 * Return the number of fields in the cache
+	 */
+	public int size() {
+		return tranches.size();
+	}
+	
+	/**
+	 * Cle du cache : region (bornes) et case cible
+	 */
+	static class Cle {
+		final int xmin, xmax, ymin, ymax, x, y;
+		
+		Cle(int xmin, int xmax, int ymin, int ymax, int x, int y) {
+			this.xmin = xmin;
+			this.xmax = xmax;
+			this.ymin = ymin;
+			this.ymax = ymax;
+			this.x = x;
+			this.y = y;
+		}
+		
+		public boolean equals(Object o) {
+			if (!(o instanceof Cle)) {
+				return false;
+			}
+			Cle c = (Cle) o;
+			return xmin == c.xmin && xmax == c.xmax && ymin == c.ymin && ymax == c.ymax && x == c.x && y == c.y;
+		}
+		
+		public int hashCode() {
+			int h = xmin;
+			h = 31 * h + xmax;
+			h = 31 * h + ymin;
+			h = 31 * h + ymax;
+			h = 31 * h + x;
+			return 31 * h + y;
+		}
+	}
+}
@@ -0,0 +1,420 @@
+/**
+ * Distance fields of all robots to their sources (in general their targets). <br>
+ *
+ * The distances are stored in one flat primitive array (short when the distances are small enough, int otherwise),
+ * indexed robot-major: the field of robot i is a contiguous slab of size (xmax-xmin+1)*(ymax-ymin+1). <br>
+ *
+ * The fields only cover the bounding box of the obstacles and of the sources, plus a free margin:
+ * outside of it the distance is the distance to the box plus the distance from the closest cell of the box. <br>
+ *
+ * When the rectangle between a cell and the source of a robot contains no obstacle, the distance is simply
+ * the Manhattan distance: for instances without obstacles no table is allocated at all. <br>
+ *
+ * When the complete table does not fit in the memory budget, {@link #creer} returns a {@link LazyDistanceField}
+ * instead, which computes the fields on demand. When the sources are the targets of an instance registered
+ * in the {@link DistanceCache}, the fields are shared with the previous runs on the same instance. If a number
+ * of landmarks is set, the approximate {@link LandmarkDistanceField} is used instead. <br>
+ *
+ * Optionally (masqueDirections), the complete table comes with a mask of 4 bits per cell and per robot
+ * giving the directions that get the robot strictly closer to its source: {@link #gain} then reads one nibble.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+public class DistanceField implements DistanceOracle {
+
+	/** Largeur de la bordure libre ajoutee autour des obstacles et des sources **/
+	static final int MARGE = 1;
+	
+	/** Memoire maximale (en octets) occupee par une table complete : au-dela les champs sont calcules a la demande **/
+	static long budgetMemoire = 1L << 30;
+	
+	/** Nombre de reperes de l'oracle LandmarkDistanceField (0 pour utiliser les champs exacts) et tolerance associee **/
+	static int nbReperes = 0;
+	static double toleranceReperes = 0.05;
+	
+	/** Calcule aussi le masque des directions ameliorantes avec la table complete **/
+	static boolean masqueDirections = false;
+	
+	/** Bounding box of the fields **/
+	public final int xmin;
+	public final int xmax;
+	public final int ymin;
+	public final int ymax;
+
+	/** Dimensions d'une tranche (champ d'un robot) **/
+	final int largeur;
+	final int hauteur;
+	final int tailleTranche;
+
+	/** Number of robots **/
+	public final int n;
+
+	/** Sources des champs (cibles des robots) **/
+	final int[] sourceX;
+	final int[] sourceY;
+
+	/** Graphe des cases libres de la region (partage par tous les champs de l'instance), null si l'instance n'a pas d'obstacle **/
+	final GridGraph graphe;
+
+	/** obstacle[c] vaut true si la case d'indice c est un obstacle **/
+	final boolean[] obstacle;
+	
+	/** nbObstacles[(x+1)*(hauteur+1) + y+1] contient le nombre d'obstacles de [0,x]x[0,y] (coordonnees relatives), null si l'instance n'a pas d'obstacle **/
+	final int[] nbObstacles;
+
+	/** distances[i*tailleTranche + c] contient soit -1 si obstacle (ou case inaccessible) soit d(c,source(i)) : au plus un des deux tableaux est alloue **/
+	short[] distancesCourtes;
+	int[] distancesLongues;
+	
+	/** Masque des directions qui rapprochent le robot i de sa source depuis la case c : le quartet de poids (c&1) de
+	 * directions[i*tailleMasque + c/2], bit 0 pour N, 1 pour S, 2 pour E, 3 pour W. Null si le masque n'est pas calcule **/
+	byte[] directions;
+	int tailleMasque;
+
+	public DistanceField(Instance input, Coordinates sources) {
+		this(input, sources, true);
+	}
+	
+	/**
+	 * Initialise la region et les obstacles, et calcule tous les champs si complet vaut true
+	 */
+	DistanceField(Instance input, Coordinates sources, boolean complet) {
+		n = sources.size();
+		sourceX = new int[n];
+		sourceY = new int[n];
+		for (int i = 0; i < n; i++) {
+			sourceX[i] = sources.getX(i);
+			sourceY[i] = sources.getY(i);
+		}
+		
+		// Boite englobante des sources et des obstacles
+		int bxmin = Integer.MAX_VALUE, bxmax = Integer.MIN_VALUE, bymin = Integer.MAX_VALUE, bymax = Integer.MIN_VALUE;
+		for (int i = 0; i < n; i++) {
+			bxmin = Math.min(bxmin, sources.getX(i));
+			bxmax = Math.max(bxmax, sources.getX(i));
+			bymin = Math.min(bymin, sources.getY(i));
+			bymax = Math.max(bymax, sources.getY(i));
+		}
+		if (input.obstacles != null) {
+			for (int j = 0; j < input.obstacles.size(); j++) {
+				bxmin = Math.min(bxmin, input.obstacles.getX(j));
+				bxmax = Math.max(bxmax, input.obstacles.getX(j));
+				bymin = Math.min(bymin, input.obstacles.getY(j));
+				bymax = Math.max(bymax, input.obstacles.getY(j));
+			}
+		}
+		// La marge garantit que le bord du rectangle est libre : le retour au rectangle est alors exact
+		xmin = bxmin - MARGE;
+		xmax = bxmax + MARGE;
+		ymin = bymin - MARGE;
+		ymax = bymax + MARGE;
+		largeur = xmax - xmin + 1;
+		hauteur = ymax - ymin + 1;
+		tailleTranche = largeur * hauteur;
+
+		// Sans obstacle, toutes les distances sont des distances de Manhattan : aucune table n'est necessaire
+		if (input.obstacles == null || input.obstacles.size() == 0) {
+			graphe = null;
+			obstacle = null;
+			nbObstacles = null;
+			return;
+		}
+
+		graphe = input.getGridGraph(xmin, xmax, ymin, ymax);
+		obstacle = graphe.obstacle;
+		
+		// Sommes cumulees des obstacles pour tester en temps constant si un rectangle est libre
+		nbObstacles = new int[(largeur + 1) * (hauteur + 1)];
+		for (int x = 0; x < largeur; x++) {
+			for (int y = 0; y < hauteur; y++) {
+				nbObstacles[(x + 1) * (hauteur + 1) + y + 1] = nbObstacles[x * (hauteur + 1) + y + 1] + nbObstacles[(x + 1) * (hauteur + 1) + y] - nbObstacles[x * (hauteur + 1) + y] + (obstacle[x * hauteur + y] ? 1 : 0);
+			}
+		}
+
+		if (complet) {
+			calculerTout();
+		}
+	}
+	
+	/**
+	 * Copie la region, les sources et les obstacles d'un autre champ (ces tableaux sont partages, pas les distances)
+	 */
+	DistanceField(DistanceField autre) {
+		xmin = autre.xmin;
+		xmax = autre.xmax;
+		ymin = autre.ymin;
+		ymax = autre.ymax;
+		largeur = autre.largeur;
+		hauteur = autre.hauteur;
+		tailleTranche = autre.tailleTranche;
+		n = autre.n;
+		sourceX = autre.sourceX;
+		sourceY = autre.sourceY;
+		graphe = autre.graphe;
+		obstacle = autre.obstacle;
+		nbObstacles = autre.nbObstacles;
+	}
+	
+	/**
+	 * Renvoie les distances aux sources, en choisissant la table complete si elle tient dans le budget memoire
+	 * et des champs calcules a la demande sinon
+	 */
+	public static DistanceOracle creer(Instance input, Coordinates sources) {
+		DistanceField champ = new DistanceField(input, sources, false);
+		if (nbReperes > 0 && champ.obstacle != null) {
+			return new LandmarkDistanceField(champ, nbReperes, toleranceReperes);
+		}
+		DistanceCache cache = DistanceCache.trouver(input, sources);
+		// Les champs partages n'ont pas de masque des directions
+		if (cache != null && !masqueDirections && champ.obstacle != null && champ.tailleTable() <= budgetMemoire) {
+			return cache.champ(champ);
+		}
+		if (champ.tailleTableEtMasque() <= budgetMemoire) {
+			champ.calculerTout();
+			return champ;
+		}
+		return new LazyDistanceField(champ, budgetMemoire);
+	}
+	
+	/**
+	 * Alloue la table complete et calcule le champ de chaque robot
+	 */
+	void calculerTout() {
+		if (obstacle == null) {
+			return;
+		}
+		// Une distance de parcours en largeur est toujours inferieure au nombre de cases
+		if (courtes()) {
+			distancesCourtes = new short[n * tailleTranche];
+		} else {
+			distancesLongues = new int[n * tailleTranche];
+		}
+		if (masqueDirections) {
+			// Chaque robot a ses propres octets : deux parcours ne partagent jamais un octet du masque
+			tailleMasque = (tailleTranche + 1) / 2;
+			directions = new byte[n * tailleMasque];
+		}
+
+		// Les parcours sont independants et ecrivent chacun dans leur tranche : on les repartit sur tous les coeurs
+		ThreadLocal<int[]> files = ThreadLocal.withInitial(() -> new int[tailleTranche]);
+		IntStream.range(0, n).parallel().forEach(i -> {
+			calculer(distancesCourtes, distancesLongues, i * tailleTranche, indice(sourceX[i], sourceY[i]), files.get());
+			if (directions != null) {
+				calculerDirections(i);
+			}
+		});
+	}
+	
+	/**
+	 * Remplit le masque des directions du robot i a partir de son champ (cases interieures de la region seulement)
+	 */
+	void calculerDirections(int i) {
+		int debut = i * tailleTranche;
+		int base = i * tailleMasque;
+		for (int x = 1; x < largeur - 1; x++) {
+			for (int y = 1; y < hauteur - 1; y++) {
+				int c = x * hauteur + y;
+				int d = get(distancesCourtes, distancesLongues, debut + c);
+				if (d <= 0) {
+					continue;
+				}
+				// Un obstacle vaut -1 : il n'est jamais compte comme une amelioration
+				int masque = 0;
+				if (get(distancesCourtes, distancesLongues, debut + c + 1) == d - 1) masque |= 1;
+				if (get(distancesCourtes, distancesLongues, debut + c - 1) == d - 1) masque |= 2;
+				if (get(distancesCourtes, distancesLongues, debut + c + hauteur) == d - 1) masque |= 4;
+				if (get(distancesCourtes, distancesLongues, debut + c - hauteur) == d - 1) masque |= 8;
+				directions[base + (c >> 1)] |= masque << ((c & 1) << 2);
+			}
+		}
+	}
+
+	/**
+	 * Alloue et calcule le champ du robot i seul : renvoie un short[] ou un int[] selon la taille de la region
+	 */
+	Object calculerTranche(int i, int[] file) {
+		return calculerTrancheDepuis(indice(sourceX[i], sourceY[i]), file);
+	}
+	
+	/**
+	 * Alloue et calcule le champ des distances a la case d'indice source
+	 */
+	Object calculerTrancheDepuis(int source, int[] file) {
+		if (courtes()) {
+			short[] dc = new short[tailleTranche];
+			calculer(dc, null, 0, source, file);
+			return dc;
+		}
+		int[] dl = new int[tailleTranche];
+		calculer(null, dl, 0, source, file);
+		return dl;
+	}
+
+	/**
+	 * Calcul d'un champ : parcours en largeur depuis la case d'indice source, ecrit a partir de la position debut
+	 * dans celui des deux tableaux qui n'est pas null. <br>
+	 * La file est un tableau d'indices de cases fourni par l'appelant (chaque case y entre au plus une fois)
+	 */
+	void calculer(short[] dc, int[] dl, int debut, int source, int[] file) {
+		if (dc != null) {
+			Arrays.fill(dc, debut, debut + tailleTranche, (short) -1);
+		} else {
+			Arrays.fill(dl, debut, debut + tailleTranche, -1);
+		}
+
+		// Parcours du graphe des cases libres : la file contient des numeros de cases libres
+		int[] caseLibre = graphe.caseLibre;
+		int[] debutVoisins = graphe.debutVoisins;
+		int[] voisins = graphe.voisins;
+		int tete = 0;
+		int queue = 0;
+		set(dc, dl, debut + source, 0);
+		file[queue++] = graphe.numero[source];
+		while (tete < queue) {
+			int u = file[tete++];
+			int d = get(dc, dl, debut + caseLibre[u]) + 1;
+			for (int e = debutVoisins[u]; e < debutVoisins[u + 1]; e++) {
+				int v = voisins[e];
+				if (get(dc, dl, debut + caseLibre[v]) == -1) {
+					set(dc, dl, debut + caseLibre[v], d);
+					file[queue++] = v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Renvoie la distance du robot i a sa source depuis la case (x,y)
+	 */
+	public int getDistance(int i, int x, int y) {
+		if (rectangleLibre(x, y, sourceX[i], sourceY[i])) {
+			return Math.abs(x - sourceX[i]) + Math.abs(y - sourceY[i]);
+		}
+		/** les deux premiers termes correspondent au retour au rectangle connu **/
+		int dRetour = Math.max(Math.max(y - ymax, ymin - y), 0) + Math.max(Math.max(x - xmax, xmin - x), 0);
+		return dRetour + distanceDansRegion(i, indice(Math.max(Math.min(x, xmax), xmin), Math.max(Math.min(y, ymax), ymin)));
+	}
+	
+	/**
+	 * Gain du deplacement (dx,dy) depuis (x,y), ou le robot i est a distance d : lu dans le masque des directions
+	 * quand la case et sa voisine sont des cases libres interieures a la region (la grille etant bipartite, les distances
+	 * de deux cases libres voisines accessibles different exactement de 1)
+	 */
+	public int gain(int i, int x, int y, int dx, int dy, int d) {
+		if (directions != null && d >= 0 && (dx != 0 || dy != 0) && x > xmin && x < xmax && y > ymin && y < ymax) {
+			int c = indice(x, y);
+			if (!obstacle[c] && !obstacle[c + dx * hauteur + dy]) {
+				int bit = dy == 1 ? 0 : dy == -1 ? 1 : dx == 1 ? 2 : 3;
+				return ((directions[i * tailleMasque + (c >> 1)] >> (((c & 1) << 2) + bit)) & 1) != 0 ? 1 : -1;
+			}
+		}
+		return d - getDistance(i, x + dx, y + dy);
+	}
+	
+	/**
+	 * Distance du robot i a sa source depuis la case d'indice c de la region
+	 */
+	int distanceDansRegion(int i, int c) {
+		return get(distancesCourtes, distancesLongues, i * tailleTranche + c);
+	}
+
+	/**
+	 * Renvoie true si le rectangle de coins (x1,y1) et (x2,y2) ne contient aucun obstacle : 
+	 * la distance entre ces deux cases est alors la distance de Manhattan
+	 */
+	public boolean rectangleLibre(int x1, int y1, int x2, int y2) {
+		if (nbObstacles == null) {
+			return true;
+		}
+		// Les obstacles sont tous dans le rectangle connu : on peut y restreindre la requete
+		int ax = Math.max(Math.min(x1, x2), xmin) - xmin;
+		int bx = Math.min(Math.max(x1, x2), xmax) - xmin;
+		int ay = Math.max(Math.min(y1, y2), ymin) - ymin;
+		int by = Math.min(Math.max(y1, y2), ymax) - ymin;
+		if (ax > bx || ay > by) {
+			return true;
+		}
+		int h = hauteur + 1;
+		return nbObstacles[(bx + 1) * h + by + 1] - nbObstacles[ax * h + by + 1] - nbObstacles[(bx + 1) * h + ay] + nbObstacles[ax * h + ay] == 0;
+	}
+
+	/**
+	 * Taille (en octets) de la table complete des champs
+	 */
+	long tailleTable() {
+		if (obstacle == null) {
+			return 0;
+		}
+		return (courtes() ? 2L : 4L) * n * tailleTranche;
+	}
+	
+	/**
+	 * Taille (en octets) de la table complete et, s'il est demande, du masque des directions
+	 */
+	long tailleTableEtMasque() {
+		if (obstacle == null || !masqueDirections) {
+			return tailleTable();
+		}
+		return tailleTable() + (long) n * ((tailleTranche + 1) / 2);
+	}
+
+	/**
+	 * Memoire du graphe des cases libres et des sommes d'obstacles (partages entre les champs d'une meme region), 0 sans obstacle
+	 */
+	long memoireObstacles() {
+		return obstacle == null ? 0 : graphe.memoryFootprint() + 4L * nbObstacles.length;
+	}
+
+	/**
+	 * Return the memory used by the fields (in bytes)
+	 */
+	public long memoryFootprint() {
+		long octets = 8L * n + memoireObstacles();
+		if (distancesCourtes != null) {
+			octets += 2L * distancesCourtes.length;
+		}
+		if (distancesLongues != null) {
+			octets += 4L * distancesLongues.length;
+		}
+		if (directions != null) {
+			octets += directions.length;
+		}
+		return octets;
+	}
+
+	/**
+	 * FONCTIONS SECONDAIRES-----------------------------------------------------------------------------------------------------------
+	 */
+
+	int indice(int x, int y) {
+		return (x - xmin) * hauteur + (y - ymin);
+	}
+
+	boolean courtes() {
+		return tailleTranche < Short.MAX_VALUE;
+	}
+
+	static int get(short[] dc, int[] dl, int k) {
+		if (dc != null) {
+			return dc[k];
+		}
+		return dl[k];
+	}
+
+	static void set(short[] dc, int[] dl, int k, int d) {
+		if (dc != null) {
+			dc[k] = (short) d;
+		} else {
+			dl[k] = d;
+		}
+	}
+
+	public String toString() {
+		return "Distance fields: " + n + " robots, [" + xmin + ", " + xmax + "]x[" + ymin + ", " + ymax + "], " + (memoryFootprint() >> 20) + " MB";
+	}
+}
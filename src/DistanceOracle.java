@@ -0,0 +1,40 @@
+/**
+ * Distances of the robots to their sources (in general their targets), as used by the motion algorithms.
+ * 
+ * @author Gonzague de Carpentier (Ecole Polytechnique) 
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+public interface DistanceOracle {
+	
+	/**
+	 * Renvoie la distance du robot i a sa source depuis la case (x,y), -1 si la case est un obstacle
+	 */
+	public int getDistance(int i, int x, int y);
+	
+	/**
+	 * Retourne +1 si le mouvement depuis (x,y) rapproche i de sa source, -1 s'il l'en eloigne
+	 */
+	public default int gain(int i, int x, int y, int[] motion) {
+		return gain(i, x, y, motion[0], motion[1]);
+	}
+	
+	/**
+	 * Meme chose pour le deplacement (dx,dy), sans allouer de tableau
+	 */
+	public default int gain(int i, int x, int y, int dx, int dy) {
+		return gain(i, x, y, dx, dy, getDistance(i, x, y));
+	}
+	
+	/**
+	 * Meme chose quand la distance d de i depuis (x,y) est deja connue
+	 */
+	public default int gain(int i, int x, int y, int dx, int dy, int d) {
+		return d - getDistance(i, x + dx, y + dy);
+	}
+	
+	/**
+	 * Return the memory used to answer the queries (in bytes)
+	 */
+	public long memoryFootprint();
+}
@@ -0,0 +1,119 @@
+/**
+ * Graph of the free cells of a rectangular region of the grid, stored in compressed sparse row (CSR) form:
+ * the neighbours of the free cell u are voisins[debutVoisins[u]], ..., voisins[debutVoisins[u+1]-1]. <br>
+ *
+ * Free cells are numbered in the order of the region cells (column by column), so that a traversal
+ * of the graph reads its arrays almost sequentially. All the breadth-first searches on the obstacles
+ * of an instance walk this graph (see {@link DistanceField}).
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+public class GridGraph {
+	
+	/** Bounding box of the region **/
+	public final int xmin;
+	public final int xmax;
+	public final int ymin;
+	public final int ymax;
+	
+	/** Dimensions de la region : la case (x,y) a pour indice (x-xmin)*hauteur + (y-ymin) **/
+	public final int largeur;
+	public final int hauteur;
+	
+	/** obstacle[c] vaut true si la case d'indice c est un obstacle **/
+	final boolean[] obstacle;
+	
+	/** Nombre de cases libres **/
+	public final int nbLibres;
+	
+	/** caseLibre[u] contient l'indice dans la region de la u-ieme case libre, numero[c] le numero de la case c (-1 si obstacle) **/
+	final int[] caseLibre;
+	final int[] numero;
+	
+	/** Voisins des cases libres (format CSR) **/
+	final int[] debutVoisins;
+	final int[] voisins;
+	
+	public GridGraph(Instance input, int xmin, int xmax, int ymin, int ymax) {
+		this.xmin = xmin;
+		this.xmax = xmax;
+		this.ymin = ymin;
+		this.ymax = ymax;
+		largeur = xmax - xmin + 1;
+		hauteur = ymax - ymin + 1;
+		int taille = largeur * hauteur;
+		
+		obstacle = new boolean[taille];
+		numero = new int[taille];
+		int u = 0;
+		for (int x = 0; x < largeur; x++) {
+			for (int y = 0; y < hauteur; y++) {
+				int c = x * hauteur + y;
+				obstacle[c] = input.isObstacle(x + xmin, y + ymin);
+				numero[c] = obstacle[c] ? -1 : u++;
+			}
+		}
+		nbLibres = u;
+		
+		caseLibre = new int[nbLibres];
+		debutVoisins = new int[nbLibres + 1];
+		int nbAretes = 0;
+		for (int c = 0; c < taille; c++) {
+			if (numero[c] >= 0) {
+				caseLibre[numero[c]] = c;
+				nbAretes += degre(c);
+			}
+		}
+		voisins = new int[nbAretes];
+		int e = 0;
+		for (u = 0; u < nbLibres; u++) {
+			debutVoisins[u] = e;
+			int c = caseLibre[u];
+			int x = c / hauteur;
+			int y = c - x * hauteur;
+			if (x > 0 && numero[c - hauteur] >= 0) {
+				voisins[e++] = numero[c - hauteur];
+			}
+			if (y > 0 && numero[c - 1] >= 0) {
+				voisins[e++] = numero[c - 1];
+			}
+			if (y < hauteur - 1 && numero[c + 1] >= 0) {
+				voisins[e++] = numero[c + 1];
+			}
+			if (x < largeur - 1 && numero[c + hauteur] >= 0) {
+				voisins[e++] = numero[c + hauteur];
+			}
+		}
+		debutVoisins[nbLibres] = e;
+	}
+	
+	/**
+	 * Nombre de voisins libres de la case libre d'indice c
+	 */
+	int degre(int c) {
+		int x = c / hauteur;
+		int y = c - x * hauteur;
+		int d = 0;
+		if (x > 0 && numero[c - hauteur] >= 0) d++;
+		if (x < largeur - 1 && numero[c + hauteur] >= 0) d++;
+		if (y > 0 && numero[c - 1] >= 0) d++;
+		if (y < hauteur - 1 && numero[c + 1] >= 0) d++;
+		return d;
+	}
+	
+	/**
+	 * Return true if the graph covers exactly the given region
+	 */
+	public boolean couvre(int xmin, int xmax, int ymin, int ymax) {
+		return this.xmin == xmin && this.xmax == xmax && this.ymin == ymin && this.ymax == ymax;
+	}
+	
+	/**
+	 * Return the memory used by the graph (in bytes)
+	 */
+	public long memoryFootprint() {
+		return obstacle.length + 4L * (numero.length + caseLibre.length + debutVoisins.length + voisins.length);
+	}
+}
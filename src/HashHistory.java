@@ -0,0 +1,126 @@
+/**
+ * Set of 64-bit configuration hashes (open addressing, linear probing), emptied in O(1) with a generation counter
+ * (a place is free when its generation is not the current one, 0 being never current). <br>
+ * Used to detect the moment when an algorithm comes back to a configuration it already visited.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+public class HashHistory {
+	
+	/** La place k est occupee par cles[k] si generations[k] == generation **/
+	long[] cles;
+	int[] generations;
+	int generation = 1;
+	int taille = 0;
+	
+	public HashHistory() {
+		cles = new long[64];
+		generations = new int[64];
+	}
+	
+	/**
+	 * Renvoie une copie de l'ensemble
+	 */
+	public HashHistory copie() {
+		HashHistory copie = new HashHistory();
+		copie.cles = cles.clone();
+		copie.generations = generations.clone();
+		copie.generation = generation;
+		copie.taille = taille;
+		return copie;
+	}
+	
+	/**
+	 * Vide l'ensemble
+	 */
+	public void vider() {
+		generation++;
+		taille = 0;
+	}
+	
+	/**
+	 * Ajoute h a l'ensemble : renvoie false s'il y etait deja
+	 */
+	public boolean ajouter(long h) {
+		if (2 * (taille + 1) > cles.length) {
+			agrandir();
+		}
+		int k = place(h);
+		if (generations[k] == generation) {
+			return false;
+		}
+		cles[k] = h;
+		generations[k] = generation;
+		taille++;
+		return true;
+	}
+	
+	/**
+	 * Retire h de l'ensemble s'il y est : les cles suivantes de la meme suite de places occupees sont replacees,
+	 * pour qu'aucune ne devienne inaccessible
+	 */
+	public void retirer(long h) {
+		int k = place(h);
+		if (generations[k] != generation) {
+			return;
+		}
+		generations[k] = 0;
+		taille--;
+		k = (k + 1) & (cles.length - 1);
+		while (generations[k] == generation) {
+			long cle = cles[k];
+			generations[k] = 0;
+			int j = place(cle);
+			cles[j] = cle;
+			generations[j] = generation;
+			k = (k + 1) & (cles.length - 1);
+		}
+	}
+	
+	public boolean contient(long h) {
+		return generations[place(h)] == generation;
+	}
+	
+	public int size() {
+		return taille;
+	}
+	
+	/**
+	 * Renvoie la place de h : celle ou il se trouve, ou la premiere place libre
+	 */
+	int place(long h) {
+		int k = (int) (h >>> 40) & (cles.length - 1);
+		while (generations[k] == generation && cles[k] != h) {
+			k = (k + 1) & (cles.length - 1);
+		}
+		return k;
+	}
+	
+	void agrandir() {
+		long[] anciennesCles = cles;
+		int[] anciennesGenerations = generations;
+		cles = new long[2 * anciennesCles.length];
+		generations = new int[2 * anciennesCles.length];
+		for (int k = 0; k < anciennesCles.length; k++) {
+			if (anciennesGenerations[k] == generation) {
+				int j = place(anciennesCles[k]);
+				cles[j] = anciennesCles[k];
+				generations[j] = generation;
+			}
+		}
+	}
+	
+	/**
+	 * Cle de Zobrist du robot i en (x,y) : la configuration a pour empreinte le ou exclusif des cles de ses robots
+	 */
+	public static long zobrist(int i, int x, int y) {
+		// Finaliseur de SplitMix64 sur l'indice et les coordonnees
+		long z = ((long) i << 40) ^ ((long) (x & 0xfffff) << 20) ^ (y & 0xfffff);
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -1,12 +1,10 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
-
-import processing.data.JSONArray;
-import processing.data.JSONObject;
+import java.util.Arrays;
 
 /**
  * This class provides methods for dealing with input/output for JSON files
+ * (and for the binary files of {@link BinaryFormat}, recognized by their magic number)
  * 
  * @author Luca Castelli Aleardi (INF421, Ecole Polytechnique, nov 2020)
  */
@@ -18,45 +16,57 @@ public class IO {
 	 * @param filename  name of the input file
 	 */
 	public static Instance loadInputInstance(String filename){
+		if (BinaryFormat.magic(filename) == BinaryFormat.MAGIC_INSTANCE) {
+			System.out.print("Reading binary input file: "+filename+"...");
+			Instance input;
+			try {
+				input = BinaryFormat.loadInstance(filename);
+			} catch (IOException e) {
+				System.err.format("IOException: %s%n", e);
+				throw new Error("Error: cannot read the input file "+filename);
+			}
+			System.out.println("done");
+			System.out.println("\tname: "+input.name);
+			System.out.println("\tnumber of robots: "+input.n);
+			System.out.println("Input instance loaded from file\n------------------");
+			return input;
+		}
 		System.out.print("Reading JSON input file: "+filename+"...");
-		JSONObject json;
 		
-		json = loadFile(filename);
-		System.out.println("ok");
+		String name = null;
+		int[][] startLocations = null;
+		int[][] targetLocations = null;
+		int[][] obstacleLocations = new int[2][0];
 		
-		String name = json.getString("name");
-		JSONArray starts = json.getJSONArray("starts");
-		JSONArray targets = json.getJSONArray("targets");
-		JSONArray obstacles = json.getJSONArray("obstacles");
-		if(targets.size()!=starts.size())
+		try (JsonReader json = new JsonReader(new FileInputStream(filename))) {
+			System.out.println("ok");
+			System.out.print("Reading start and target positions...");
+			json.attendre('{');
+			for (boolean premier = true; json.membreSuivant(premier); premier = false) {
+				String cle = json.lireChaine();
+				json.attendre(':');
+				if (cle.equals("name")) {
+					name = json.lireChaine();
+				} else if (cle.equals("starts")) {
+					startLocations = json.lirePositions();
+				} else if (cle.equals("targets")) {
+					targetLocations = json.lirePositions();
+				} else if (cle.equals("obstacles")) {
+					obstacleLocations = json.lirePositions();
+				} else {
+					json.ignorerValeur(); // meta data
+				}
+			}
+		} catch (IOException e) {
+			System.err.format("IOException: %s%n", e);
+			throw new Error("Error: cannot read the input file "+filename);
+		}
+		if(startLocations==null || targetLocations==null)
+			throw new Error("Error: start or target positions missing");
+		if(targetLocations[0].length!=startLocations[0].length)
 			throw new Error("Error: wrong number of start and target positions");
 		
-		int nRobots=starts.size();
-		int[][] startLocations=new int[2][nRobots];
-		int[][] targetLocations=new int[2][nRobots];
-		int[][] obstacleLocations=new int[2][obstacles.size()];
-		
-		System.out.print("Reading start and target positions...");
-		int[] loc;
-		for(int i=0;i<nRobots;i++) {
-			JSONArray position=starts.getJSONArray(i);
-			loc=position.getIntArray();
-			startLocations[0][i]=loc[0];
-			startLocations[1][i]=loc[1];
-			//System.out.println("robot"+i+" ["+loc[0]+", "+loc[1]+"]");
-		}
-		for(int i=0;i<nRobots;i++) {
-			JSONArray position=targets.getJSONArray(i);
-			loc=position.getIntArray();
-			targetLocations[0][i]=loc[0];
-			targetLocations[1][i]=loc[1];
-		}
-		for(int i=0;i<obstacles.size();i++) {
-			JSONArray position=obstacles.getJSONArray(i);
-			loc=position.getIntArray();
-			obstacleLocations[0][i]=loc[0];
-			obstacleLocations[1][i]=loc[1];
-		}
+		int nRobots=startLocations[0].length;
 		System.out.println("done");
 		
 		System.out.println("\tname: "+name);
@@ -73,132 +83,143 @@ public class IO {
 	 * 
 	 */
 	public static Solution loadSolution(String filename, int n){
+		if (BinaryFormat.magic(filename) == BinaryFormat.MAGIC_SOLUTION) {
+			System.out.print("Reading solution from binary file: "+filename+"...");
+			Solution solution;
+			try {
+				solution = BinaryFormat.loadSolution(filename, n);
+			} catch (IOException e) {
+				System.err.format("IOException: %s%n", e);
+				throw new Error("Error: cannot read the solution file "+filename);
+			}
+			System.out.println("done");
+			System.out.println("\tinstance: "+solution.name);
+			System.out.println("\tnumber of steps: "+solution.makespan());
+			System.out.println("Input solution loaded from file\n------------------");
+			return solution;
+		}
 		System.out.print("Reading solution from JSON file: "+filename+"...");
-		JSONObject json;
 		
-		json = loadFile(filename);
-		System.out.println("ok");
+		Solution solution=null;
+		String instance=null;
 		
-		String instance = json.getString("instance");
-		JSONArray steps = json.getJSONArray("steps");
-		int nSteps=steps.size();
-		
-		Solution solution=new Solution(instance);
-		
-		System.out.print("Reading moves...");
-		for(int k=0;k<nSteps;k++) {
-			JSONObject o=steps.getJSONObject(k);
-			
-			byte[] moves=new byte[n];
-			for(int i=0;i<n;i++) {
-				String m;
-				if(o.get(""+i)!=null) {
-					m=""+o.get(""+i);
-					if(m.equals("W")) {
-						moves[i]=4;
-					}
-					else if(m.equals("E")) {
-						moves[i]=3;
+		try (JsonReader json = new JsonReader(new FileInputStream(filename))) {
+			System.out.println("ok");
+			System.out.print("Reading moves...");
+			json.attendre('{');
+			for (boolean premier = true; json.membreSuivant(premier); premier = false) {
+				String cle = json.lireChaine();
+				json.attendre(':');
+				if (cle.equals("instance")) {
+					instance = json.lireChaine();
+				} else if (cle.equals("steps")) {
+					solution = new Solution(null);
+					byte[] moves=new byte[n]; // copie par addStep : reutilise d'une etape a l'autre
+					json.attendre('[');
+					for (boolean premiere = true; json.elementSuivant(premiere); premiere = false) {
+						// Seuls les robots qui bougent apparaissent dans l'objet de l'etape
+						Arrays.fill(moves, Solution.FIXED);
+						json.attendre('{');
+						for (boolean p = true; json.membreSuivant(p); p = false) {
+							int i = json.lireCleEntiere();
+							if (i < 0 || i >= n)
+								throw new Error("Error: robot "+i+" does not exist");
+							int m = json.lireLettre();
+							if(m=='W') {
+								moves[i]=Solution.W;
+							}
+							else if(m=='E') {
+								moves[i]=Solution.E;
+							}
+							else if(m=='S') {
+								moves[i]=Solution.S;
+							}
+							else if(m=='N') {
+								moves[i]=Solution.N;
+							}
+						}
+						solution.addStep(moves);
 					}
-					else if(m.equals("S")) {
-						moves[i]=2;
-					}
-					else if(m.equals("N")) {
-						moves[i]=1;
-					}
-					//System.out.print(" robot "+i+": "+o.get(""+i));
+				} else {
+					json.ignorerValeur();
 				}
 			}
-			solution.addStep(moves);
+		} catch (IOException e) {
+			System.err.format("IOException: %s%n", e);
+			throw new Error("Error: cannot read the solution file "+filename);
 		}
+		if (solution==null)
+			solution = new Solution(null);
+		solution.name = instance;
 		System.out.println("done");
 		
 		System.out.println("\tinstance: "+instance);
-		System.out.println("\tnumber of steps: "+nSteps);
+		System.out.println("\tnumber of steps: "+solution.makespan());
 		System.out.println("Input solution loaded from file\n------------------");
 		
 		return solution;
 	}
 
-	/**
-	 * Load a JSON object from input file
-	 * 
-	 * @param filename name of the input file
-	 */
-	private static JSONObject loadFile(String filename) {
-		JSONObject outgoing=null;
-		BufferedReader reader = null;
-		FileReader fr = null;
-
-		try {
-			fr = new FileReader(filename);
-			reader = new BufferedReader(fr);
-			outgoing = new JSONObject(reader);
-		} catch (IOException e) {
-			System.err.format("IOException: %s%n", e);
-		} finally {
-			try {
-				if (reader != null)
-					reader.close();
-
-				if (fr != null)
-					fr.close();
-			} catch (IOException ex) {
-				System.err.format("IOException: %s%n", ex);
-			}
-		}
-		
-		return outgoing;
-	}
+	/** Writer of each thread (its buffer is reused from one solution to the next) **/
+	private static final ThreadLocal<SolutionWriter> writers = ThreadLocal.withInitial(SolutionWriter::new);
 
     /**
-     * Output a solution of the motion planning problem to a JSON file
+     * Output a solution of the motion planning problem to a JSON file (written under a temporary name, then renamed)
      * 
      */		   
     public static void saveSolutionToJSON(Solution solution, String output) {
-    	/** number of robots */
-    	int n=0;
     	if(solution.makespan()==0)
     		System.out.println("Warning: the solution is empty (no robot movements)");
-    	else
-    		n=solution.steps.get(0).length; // retrieve the number of robots: the size of each array representing robot movements
     	
     	System.out.print("Saving solution to Json file: "+output+" ...");
-    	
-    	TC.ecritureDansNouveauFichier(output);
-    	TC.println("{"); // first line
-    	TC.println("  \"instance\": \""+solution.name+"\","); // write instance name
-    	
-    	int count=0;
-    	TC.println("  \"steps\": ["); // start writing all steps
-    	for(byte[] k: solution.steps) { // write the movement of robots at the 'k-th' step
-    		String line="\t{";
-    		for(int i=0;i<n;i++) { // iterate over all robots
-    			if(k[i]!=Solution.FIXED) { // the i-th robot is moving
-    				char m;
-    				if(k[i]==Solution.W) m='W';
-    				else if(k[i]==Solution.E) m='E';
-    				else if(k[i]==Solution.N) m='N';
-    				else if(k[i]==Solution.S) m='S';
-    				else throw new Error("Error: movement not recognized");
-    				
-    				line=line+", \""+i+"\": \""+m+"\"";
-    			}
-    		}
-    		line=line.replaceFirst(", ", ""); // remove ',' at the beginning: for the first robot
-    		line=line+"}";
-    		if(count!=solution.makespan()-1) // add only for the steps 0, 1, ..., k-2
-    			line=line+",";    		
-    		
-    		TC.println(line); // end encoding for the k-th step
-    		count++; // count the number of time steps
+    	try {
+    		writers.get().ecrire(solution, output);
+    	} catch (IOException e) {
+    		System.err.format("IOException: %s%n", e);
+    		return;
+    	}
+    	System.out.println("done ("+solution.makespan()+" steps)");
+    }
+	
+    /**
+     * Output an instance to a JSON file (without the meta data of the original file)
+     */
+    public static void saveInstanceToJSON(Instance input, String output) {
+    	System.out.print("Saving instance to Json file: "+output+" ...");
+    	try {
+    		writers.get().ecrire(input, output);
+    	} catch (IOException e) {
+    		System.err.format("IOException: %s%n", e);
+    		return;
+    	}
+    	System.out.println("done");
+    }
+    
+    /**
+     * Output an instance to a binary file (see BinaryFormat)
+     */
+    public static void saveInstanceToBinary(Instance input, String output) {
+    	System.out.print("Saving instance to binary file: "+output+" ...");
+    	try {
+    		BinaryFormat.saveInstance(input, output);
+    	} catch (IOException e) {
+    		System.err.format("IOException: %s%n", e);
+    		return;
+    	}
+    	System.out.println("done");
+    }
+    
+    /**
+     * Output a solution for n robots to a binary file (see BinaryFormat)
+     */
+    public static void saveSolutionToBinary(Solution solution, int n, String output) {
+    	System.out.print("Saving solution to binary file: "+output+" ...");
+    	try {
+    		BinaryFormat.saveSolution(solution, n, output);
+    	} catch (IOException e) {
+    		System.err.format("IOException: %s%n", e);
+    		return;
     	}
-    	TC.println("  ]");
-    	
-    	// output the width and height
-    	TC.println("}");
-    	
-    	TC.ecritureSortieStandard();
     	System.out.println("done ("+solution.makespan()+" steps)");
     }
 	
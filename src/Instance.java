@@ -7,6 +7,9 @@
  * @author Luca Castelli Aleardi (INF421, Ecole Polytechnique, nov 2020)
  */
 
+import java.util.ArrayList;
+import java.util.BitSet;
+
 public class Instance {
     /** coordinates of the bounding box containing the input robots and target positions */
     public int xmin=Integer.MAX_VALUE, xmax=Integer.MIN_VALUE, ymin=Integer.MAX_VALUE, ymax=Integer.MIN_VALUE;
@@ -23,6 +26,11 @@ public class Instance {
     /** array storing the input starting locations of obstacles: the set of obstacles could be empty */
     public Coordinates obstacles;
     
+    /** bitmap of the obstacles: bit (x-xmin)*(ymax-ymin+1) + (y-ymin) is set if there is an obstacle at (x, y) */
+    BitSet obstacleBitmap;
+    /** graphs of the free cells already computed (one for each region) */
+    ArrayList<GridGraph> gridGraphs=new ArrayList<GridGraph>();
+    
     public Instance(String name, Coordinates starts, Coordinates targets, Coordinates obstacles) {
     	this.name=name;
     	this.starts=starts;
@@ -31,6 +39,7 @@ public class Instance {
     	n=starts.size();
     	
     	this.getBoundingBox();
+    	this.initObstacleBitmap();
     }
     
     /**
@@ -58,6 +67,40 @@ public class Instance {
     	}
     }
     
+    /**
+     * Compute the bitmap of the obstacles (over the bounding box of the instance)
+     */
+    public void initObstacleBitmap() {
+    	obstacleBitmap=new BitSet();
+    	if(this.obstacles!=null) {
+    		for(int i=0;i<this.obstacles.size();i++) {
+    			obstacleBitmap.set((obstacles.getX(i)-xmin)*(ymax-ymin+1)+obstacles.getY(i)-ymin);
+    		}
+    	}
+    }
+    
+    /**
+     * Return true if there is an obstacle at location (x, y)
+     */
+    public boolean isObstacle(int x, int y) {
+    	if(x<xmin || x>xmax || y<ymin || y>ymax)
+    		return false;
+    	return obstacleBitmap.get((x-xmin)*(ymax-ymin+1)+y-ymin);
+    }
+    
+    /**
+     * Return the graph of the free cells of the region [xmin', xmax']x[ymin', ymax'] (computed only once for each region)
+     */
+    public synchronized GridGraph getGridGraph(int xmin, int xmax, int ymin, int ymax) {
+    	for(GridGraph g: gridGraphs) {
+    		if(g.couvre(xmin, xmax, ymin, ymax))
+    			return g;
+    	}
+    	GridGraph g=new GridGraph(this, xmin, xmax, ymin, ymax);
+    	gridGraphs.add(g);
+    	return g;
+    }
+    
     public String toString() {
     	String result="Instance of a coordinate robot motion planning problem:\n";
     	result=result+"\tnumber of robots="+this.n+"\n";
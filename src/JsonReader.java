@@ -0,0 +1,329 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal streaming JSON tokenizer (no DOM, no dependency), used by {@link IO} to read instances and solutions. <br>
+ *
+ * The input is read through a byte buffer: objects are walked key by key by the caller, integers and
+ * single-letter strings are decoded without allocation, and the values the caller does not need are skipped.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+public class JsonReader implements Closeable {
+	
+	final InputStream entree;
+	
+	/** Octets lus et pas encore consommes : tampon[position..limite[ **/
+	final byte[] tampon = new byte[1 << 16];
+	int position = 0;
+	int limite = 0;
+	
+	/** Octets de la chaine en cours de lecture **/
+	byte[] chaine = new byte[64];
+	
+	public JsonReader(InputStream entree) {
+		this.entree = entree;
+	}
+	
+	/**
+	 * Renvoie le prochain caractere qui n'est pas un blanc, sans le consommer (-1 a la fin de l'entree)
+	 */
+	public int regarder() throws IOException {
+		while (true) {
+			if (position == limite && !remplir()) {
+				return -1;
+			}
+			int c = tampon[position];
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+				return c;
+			}
+			position++;
+		}
+	}
+	
+	/**
+	 * Consomme le prochain caractere (apres les blancs) s'il vaut c : renvoie true dans ce cas
+	 */
+	public boolean suivantSi(int c) throws IOException {
+		if (regarder() == c) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Consomme le caractere c (apres les blancs), erreur si c'est un autre caractere
+	 */
+	public void attendre(int c) throws IOException {
+		if (!suivantSi(c)) {
+			throw erreur("'" + (char) c + "' expected");
+		}
+	}
+	
+	/**
+	 * Parcours d'un objet : a appeler apres attendre('{') puis apres chaque valeur. Renvoie true s'il reste
+	 * une cle a lire (la cle est lue ensuite par lireChaine ou lireCleEntiere, puis le ':' est consomme)
+	 */
+	public boolean membreSuivant(boolean premier) throws IOException {
+		if (suivantSi('}')) {
+			return false;
+		}
+		if (!premier) {
+			attendre(',');
+		}
+		return true;
+	}
+	
+	/**
+	 * Parcours d'un tableau : meme principe que membreSuivant, avec ']'
+	 */
+	public boolean elementSuivant(boolean premier) throws IOException {
+		if (suivantSi(']')) {
+			return false;
+		}
+		if (!premier) {
+			attendre(',');
+		}
+		return true;
+	}
+	
+	/**
+	 * Lit une chaine (avec les sequences d'echappement : une paire de substitution \\uD8xx\\uDCxx donne un seul caractere)
+	 */
+	public String lireChaine() throws IOException {
+		attendre('"');
+		int longueur = 0;
+		int haut = -1; // moitie haute d'une paire de substitution, en attente de sa moitie basse
+		while (true) {
+			int c = lireOctet();
+			boolean echappe = c == '\\';
+			int code = -1; // caractere d'une sequence \\uXXXX
+			if (echappe) {
+				c = lireOctet();
+				switch (c) {
+					case 'b': c = '\b'; break;
+					case 'f': c = '\f'; break;
+					case 'n': c = '\n'; break;
+					case 'r': c = '\r'; break;
+					case 't': c = '\t'; break;
+					case 'u': code = lireHexa(); break;
+					default: // '"', '\\' et '/' sont recopies tels quels
+				}
+			}
+			if (haut >= 0 && !(code >= 0 && Character.isLowSurrogate((char) code))) {
+				longueur = ajouter(longueur, (byte) '?'); // moitie isolee, remplacee comme par String.getBytes
+				haut = -1;
+			}
+			if (!echappe && c == '"') {
+				break;
+			}
+			if (code < 0) {
+				longueur = ajouter(longueur, (byte) c);
+			} else if (Character.isHighSurrogate((char) code)) {
+				haut = code;
+			} else {
+				int point = haut >= 0 ? Character.toCodePoint((char) haut, (char) code) : code;
+				haut = -1;
+				byte[] utf8 = new String(Character.toChars(point)).getBytes(StandardCharsets.UTF_8);
+				for (int k = 0; k < utf8.length; k++) {
+					longueur = ajouter(longueur, utf8[k]);
+				}
+			}
+		}
+		return new String(chaine, 0, longueur, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Lit les quatre chiffres hexadecimaux d'une sequence \\uXXXX
+	 */
+	int lireHexa() throws IOException {
+		int code = 0;
+		for (int k = 0; k < 4; k++) {
+			int chiffre = Character.digit(lireOctet(), 16);
+			if (chiffre < 0) {
+				throw erreur("invalid unicode escape");
+			}
+			code = 16 * code + chiffre;
+		}
+		return code;
+	}
+	
+	/**
+	 * Lit une cle formee d'un entier positif ("123") et consomme le ':' qui la suit
+	 */
+	public int lireCleEntiere() throws IOException {
+		attendre('"');
+		long valeur = 0;
+		int c = lireOctet();
+		if (c < '0' || c > '9') {
+			throw erreur("integer key expected");
+		}
+		while (c >= '0' && c <= '9') {
+			valeur = 10 * valeur + (c - '0');
+			if (valeur > Integer.MAX_VALUE) {
+				throw erreur("integer too large");
+			}
+			c = lireOctet();
+		}
+		if (c != '"') {
+			throw erreur("integer key expected");
+		}
+		attendre(':');
+		return (int) valeur;
+	}
+	
+	/**
+	 * Lit une chaine d'un seul caractere ASCII ("N") et renvoie ce caractere
+	 */
+	public int lireLettre() throws IOException {
+		attendre('"');
+		int c = lireOctet();
+		if (c == '"' || c == '\\' || lireOctet() != '"') {
+			throw erreur("one-letter string expected");
+		}
+		return c;
+	}
+	
+	/**
+	 * Lit un entier (erreur si le nombre n'est pas entier)
+	 */
+	public int lireEntier() throws IOException {
+		boolean negatif = suivantSi('-');
+		long valeur = 0;
+		int chiffres = 0;
+		while (true) {
+			if (position == limite && !remplir()) {
+				break;
+			}
+			int c = tampon[position];
+			if (c < '0' || c > '9') {
+				break;
+			}
+			valeur = 10 * valeur + (c - '0');
+			position++;
+			chiffres++;
+			if (valeur > Integer.MAX_VALUE + 1L) {
+				throw erreur("integer too large");
+			}
+		}
+		if (chiffres == 0 || regarder() == '.' || regarder() == 'e' || regarder() == 'E') {
+			throw erreur("integer expected");
+		}
+		valeur = negatif ? -valeur : valeur;
+		if (valeur > Integer.MAX_VALUE) {
+			throw erreur("integer too large");
+		}
+		return (int) valeur;
+	}
+	
+	/**
+	 * Lit un tableau de positions [[x, y], ...] : renvoie un tableau int[2][m] (x dans la ligne 0, y dans la ligne 1)
+	 */
+	public int[][] lirePositions() throws IOException {
+		int[] xs = new int[16];
+		int[] ys = new int[16];
+		int m = 0;
+		attendre('[');
+		for (boolean premier = true; elementSuivant(premier); premier = false) {
+			if (m == xs.length) {
+				xs = Arrays.copyOf(xs, 2 * m);
+				ys = Arrays.copyOf(ys, 2 * m);
+			}
+			attendre('[');
+			xs[m] = lireEntier();
+			attendre(',');
+			ys[m] = lireEntier();
+			attendre(']');
+			m++;
+		}
+		return new int[][] {Arrays.copyOf(xs, m), Arrays.copyOf(ys, m)};
+	}
+	
+	/**
+	 * Saute la prochaine valeur, quelle qu'elle soit (objet, tableau, chaine, nombre, true, false, null)
+	 */
+	public void ignorerValeur() throws IOException {
+		int c = regarder();
+		if (c == '{') {
+			position++;
+			for (boolean premier = true; membreSuivant(premier); premier = false) {
+				lireChaine();
+				attendre(':');
+				ignorerValeur();
+			}
+		} else if (c == '[') {
+			position++;
+			for (boolean premier = true; elementSuivant(premier); premier = false) {
+				ignorerValeur();
+			}
+		} else if (c == '"') {
+			lireChaine();
+		} else if (c == -1) {
+			throw erreur("value expected");
+		} else {
+			// Nombre ou litteral : jusqu'au prochain separateur
+			int longueur = 0;
+			while (true) {
+				if (position == limite && !remplir()) {
+					break;
+				}
+				c = tampon[position];
+				if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+					break;
+				}
+				position++;
+				longueur++;
+			}
+			if (longueur == 0) {
+				throw erreur("value expected");
+			}
+		}
+	}
+	
+	/**
+	 * FONCTIONS SECONDAIRES-----------------------------------------------------------------------------------------------------------
+	 */
+	
+	int lireOctet() throws IOException {
+		if (position == limite && !remplir()) {
+			throw erreur("unexpected end of input");
+		}
+		return tampon[position++] & 0xff;
+	}
+	
+	int ajouter(int longueur, byte b) {
+		if (longueur == chaine.length) {
+			chaine = Arrays.copyOf(chaine, 2 * longueur);
+		}
+		chaine[longueur] = b;
+		return longueur + 1;
+	}
+	
+	/**
+	 * Lit la suite de l'entree dans le tampon : renvoie false a la fin de l'entree
+	 */
+	boolean remplir() throws IOException {
+		int lus = entree.read(tampon, 0, tampon.length);
+		if (lus <= 0) {
+			position = limite = 0;
+			return false;
+		}
+		position = 0;
+		limite = lus;
+		return true;
+	}
+	
+	Error erreur(String message) {
+		return new Error("Error: malformed JSON input: " + message);
+	}
+	
+	public void close() throws IOException {
+		entree.close();
+	}
+}
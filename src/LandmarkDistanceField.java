@@ -0,0 +1,163 @@
+/**
+ * Distance oracle based on landmarks (ALT): the distances from k landmark cells are computed once, and the
+ * distance from a cell c to the source t of a robot is estimated by the lower bound max_l |d(l,t) - d(l,c)|
+ * (triangle inequality), or by the Manhattan distance if it is larger. <br>
+ *
+ * The exact field is only kept for the robots for which this bound is too often wrong near the obstacles.
+ * The memory used is then about k fields instead of n.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+import java.util.stream.IntStream;
+
+public class LandmarkDistanceField extends DistanceField {
+	
+	/** Number of landmarks **/
+	public final int k;
+	
+	/** reperes[l][c] contient la distance de la case c au repere l (-1 si obstacle ou inaccessible) **/
+	final int[][] reperes;
+	
+	/** cibleRepere[i*k + l] contient la distance de la source du robot i au repere l **/
+	final int[] cibleRepere;
+	
+	/** exacts[i] contient le champ exact du robot i s'il a ete garde, null sinon (un seul des deux tableaux est utilise) **/
+	final short[][] exactsCourts;
+	final int[][] exactsLongs;
+	
+	/** Number of robots whose exact field is kept **/
+	public int nbExacts = 0;
+	
+	/**
+	 * Build the oracle on the region and obstacles of 'region' (whose table is not allocated), with k landmarks.
+	 * The exact field of a robot is kept if the bound is wrong on more than a proportion 'tolerance' of the free
+	 * cells next to an obstacle.
+	 */
+	LandmarkDistanceField(DistanceField region, int k, double tolerance) {
+		super(region);
+		this.k = k;
+		reperes = new int[k][];
+		int[] file = new int[tailleTranche];
+		
+		// Choix des reperes : on prend a chaque fois la case la plus eloignee des reperes deja choisis
+		// (le premier est un coin de la region, qui est toujours libre grace a la marge)
+		int[] eloignement = new int[tailleTranche];
+		int repere = 0;
+		for (int l = 0; l < k; l++) {
+			reperes[l] = new int[tailleTranche];
+			calculer(null, reperes[l], 0, repere, file);
+			int plusLoin = -1;
+			for (int c = 0; c < tailleTranche; c++) {
+				if (l == 0 || reperes[l][c] < eloignement[c]) {
+					eloignement[c] = reperes[l][c];
+				}
+				if (plusLoin < 0 || eloignement[c] > eloignement[plusLoin]) {
+					plusLoin = c;
+				}
+			}
+			repere = plusLoin;
+		}
+		
+		cibleRepere = new int[n * k];
+		for (int i = 0; i < n; i++) {
+			int source = indice(sourceX[i], sourceY[i]);
+			for (int l = 0; l < k; l++) {
+				cibleRepere[i * k + l] = reperes[l][source];
+			}
+		}
+		
+		// Cases libres voisines d'un obstacle : c'est la que le minorant est le plus souvent faux
+		int nbProches = 0;
+		int[] proches = new int[tailleTranche];
+		for (int c = 0; c < tailleTranche; c++) {
+			if (!obstacle[c] && procheObstacle(c)) {
+				proches[nbProches++] = c;
+			}
+		}
+		final int nbCases = nbProches;
+		
+		if (courtes()) {
+			exactsCourts = new short[n][];
+			exactsLongs = null;
+		} else {
+			exactsCourts = null;
+			exactsLongs = new int[n][];
+		}
+		ThreadLocal<int[]> files = ThreadLocal.withInitial(() -> new int[tailleTranche]);
+		ThreadLocal<int[]> exacts = ThreadLocal.withInitial(() -> new int[tailleTranche]);
+		IntStream.range(0, n).parallel().forEach(i -> {
+			int[] exact = exacts.get();
+			calculer(null, exact, 0, indice(sourceX[i], sourceY[i]), files.get());
+			int erreurs = 0;
+			for (int j = 0; j < nbCases; j++) {
+				if (borne(i, proches[j]) != exact[proches[j]]) {
+					erreurs++;
+				}
+			}
+			if (erreurs > tolerance * nbCases) {
+				if (exactsCourts != null) {
+					short[] copie = new short[tailleTranche];
+					for (int c = 0; c < tailleTranche; c++) {
+						copie[c] = (short) exact[c];
+					}
+					exactsCourts[i] = copie;
+				} else {
+					exactsLongs[i] = exact.clone();
+				}
+			}
+		});
+		for (int i = 0; i < n; i++) {
+			if ((exactsCourts != null && exactsCourts[i] != null) || (exactsLongs != null && exactsLongs[i] != null)) {
+				nbExacts++;
+			}
+		}
+	}
+	
+	public LandmarkDistanceField(Instance input, Coordinates sources, int k, double tolerance) {
+		this(new DistanceField(input, sources, false), k, tolerance);
+	}
+	
+	@Override
+	int distanceDansRegion(int i, int c) {
+		if (exactsCourts != null && exactsCourts[i] != null) {
+			return exactsCourts[i][c];
+		}
+		if (exactsLongs != null && exactsLongs[i] != null) {
+			return exactsLongs[i][c];
+		}
+		return borne(i, c);
+	}
+	
+	/**
+	 * Minorant de la distance de la case d'indice c a la source du robot i
+	 */
+	int borne(int i, int c) {
+		if (obstacle[c] || reperes[0][c] == -1) {
+			return -1;
+		}
+		int x = c / hauteur;
+		int y = c - x * hauteur;
+		int d = Math.abs(x + xmin - sourceX[i]) + Math.abs(y + ymin - sourceY[i]);
+		for (int l = 0; l < k; l++) {
+			d = Math.max(d, Math.abs(cibleRepere[i * k + l] - reperes[l][c]));
+		}
+		return d;
+	}
+	
+	boolean procheObstacle(int c) {
+		int x = c / hauteur;
+		int y = c - x * hauteur;
+		return (x > 0 && obstacle[c - hauteur]) || (x < largeur - 1 && obstacle[c + hauteur])
+				|| (y > 0 && obstacle[c - 1]) || (y < hauteur - 1 && obstacle[c + 1]);
+	}
+	
+	@Override
+	public long memoryFootprint() {
+		long octets = 8L * n + memoireObstacles();
+		octets += 4L * k * tailleTranche + 4L * cibleRepere.length + 8L * n;
+		octets += (courtes() ? 2L : 4L) * nbExacts * tailleTranche;
+		return octets;
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * Distance fields computed on demand. <br>
+ *
+ * The field of a robot is only computed the first time a distance is asked for a cell that is not
+ * in the rectangle-free (Manhattan) zone of its source. Fields are kept in a cache of bounded size
+ * and the least recently used ones are discarded (they will be recomputed if needed again). <br>
+ *
+ * Remark: this class is not thread-safe.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+public class LazyDistanceField extends DistanceField {
+	
+	/** Memoire maximale occupee par les champs en cache (en octets) **/
+	public final long budget;
+	
+	/** tranches[i] contient le champ du robot i s'il est en cache, null sinon (un seul des deux tableaux est utilise) **/
+	short[][] tranchesCourtes;
+	int[][] tranchesLongues;
+	
+	/** Liste doublement chainee des robots en cache, du plus recemment utilise (tete) au plus ancien (queue) **/
+	int[] precedent;
+	int[] suivant;
+	int tete = -1;
+	int queue = -1;
+	
+	/** Nombre de champs en cache et nombre de champs calcules depuis la creation **/
+	int enCache = 0;
+	public int nbCalculs = 0;
+	
+	/** File du parcours en largeur, reutilisee d'un calcul a l'autre **/
+	int[] file;
+	
+	/**
+	 * Build the lazy fields on the region and obstacles of 'region' (whose table is not allocated)
+	 */
+	LazyDistanceField(DistanceField region, long budget) {
+		super(region);
+		this.budget = budget;
+		precedent = new int[n];
+		suivant = new int[n];
+		if (courtes()) {
+			tranchesCourtes = new short[n][];
+		} else {
+			tranchesLongues = new int[n][];
+		}
+	}
+	
+	public LazyDistanceField(Instance input, Coordinates sources, long budget) {
+		this(new DistanceField(input, sources, false), budget);
+	}
+	
+	/**
+	 * Copie des champs avec son propre cache : les champs deja calcules sont partages (ils ne sont plus modifies),
+	 * la copie et l'original peuvent donc etre utilises par deux threads differents
+	 */
+	LazyDistanceField(LazyDistanceField autre) {
+		super(autre);
+		budget = autre.budget;
+		precedent = autre.precedent.clone();
+		suivant = autre.suivant.clone();
+		tete = autre.tete;
+		queue = autre.queue;
+		enCache = autre.enCache;
+		if (autre.tranchesCourtes != null) {
+			tranchesCourtes = autre.tranchesCourtes.clone();
+		} else {
+			tranchesLongues = autre.tranchesLongues.clone();
+		}
+	}
+	
+	@Override
+	int distanceDansRegion(int i, int c) {
+		if (tranchesCourtes != null) {
+			if (tranchesCourtes[i] == null) {
+				charger(i);
+			} else {
+				utiliser(i);
+			}
+			return tranchesCourtes[i][c];
+		}
+		if (tranchesLongues[i] == null) {
+			charger(i);
+		} else {
+			utiliser(i);
+		}
+		return tranchesLongues[i][c];
+	}
+	
+	/**
+	 * Calcule le champ du robot i et le place en tete du cache, en liberant les champs les plus anciens si besoin
+	 */
+	void charger(int i) {
+		long taille = (courtes() ? 2L : 4L) * tailleTranche;
+		// On garde toujours au moins un champ, meme si le budget est inferieur a sa taille
+		while (enCache > 0 && (enCache + 1) * taille > budget) {
+			liberer(queue);
+		}
+		
+		if (file == null) {
+			file = new int[tailleTranche];
+		}
+		if (courtes()) {
+			tranchesCourtes[i] = (short[]) calculerTranche(i, file);
+		} else {
+			tranchesLongues[i] = (int[]) calculerTranche(i, file);
+		}
+		nbCalculs++;
+		
+		enCache++;
+		precedent[i] = -1;
+		suivant[i] = tete;
+		if (tete >= 0) {
+			precedent[tete] = i;
+		}
+		tete = i;
+		if (queue < 0) {
+			queue = i;
+		}
+	}
+	
+	/**
+	 * Place le robot i (deja en cache) en tete de la liste
+	 */
+	void utiliser(int i) {
+		if (tete == i) {
+			return;
+		}
+		retirer(i);
+		precedent[i] = -1;
+		suivant[i] = tete;
+		precedent[tete] = i;
+		tete = i;
+	}
+	
+	/**
+	 * Supprime le champ du robot i du cache
+	 */
+	void liberer(int i) {
+		retirer(i);
+		if (tranchesCourtes != null) {
+			tranchesCourtes[i] = null;
+		} else {
+			tranchesLongues[i] = null;
+		}
+		enCache--;
+	}
+	
+	/**
+	 * Retire le robot i de la liste chainee
+	 */
+	void retirer(int i) {
+		if (precedent[i] >= 0) {
+			suivant[precedent[i]] = suivant[i];
+		} else {
+			tete = suivant[i];
+		}
+		if (suivant[i] >= 0) {
+			precedent[suivant[i]] = precedent[i];
+		} else {
+			queue = precedent[i];
+		}
+	}
+	
+	@Override
+	public long memoryFootprint() {
+		long octets = 16L * n + 4L * tailleTranche + (courtes() ? 2L : 4L) * enCache * tailleTranche;
+		return octets + memoireObstacles();
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * Distance fields read from a file through a read-only memory mapping. <br>
+ *
+ * The file contains a header (magic number, version, hash of the obstacles/sources/region, bounds, number
+ * of robots and size of the values) followed by the table of DistanceField, robot-major. Since the mapping
+ * goes through the page cache, the fields are shared between all the processes working on the same instance,
+ * and a restarted process does not need to recompute them. Stale files are rebuilt automatically.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class MappedDistanceField extends DistanceField {
+	
+	/** Format du fichier **/
+	static final int MAGIC = 0x44495354; // "DIST"
+	static final int VERSION = 1;
+	static final int TAILLE_ENTETE = 40;
+	
+	/** Distances lues dans le fichier : un seul des deux tampons est utilise **/
+	final ShortBuffer courtes;
+	final IntBuffer longues;
+	
+	MappedDistanceField(DistanceField region, MappedByteBuffer tampon) {
+		super(region);
+		tampon.position(TAILLE_ENTETE);
+		if (courtes()) {
+			courtes = tampon.slice().asShortBuffer();
+			longues = null;
+		} else {
+			courtes = null;
+			longues = tampon.slice().asIntBuffer();
+		}
+	}
+	
+	/**
+	 * Open the fields of 'region' stored in the directory 'repertoire', computing and saving them first
+	 * if the file does not exist or is stale. Return null if the fields cannot be mapped.
+	 */
+	public static MappedDistanceField ouvrir(DistanceField region, String repertoire, String nom) {
+		if (region.obstacle == null || TAILLE_ENTETE + region.tailleTable() > Integer.MAX_VALUE) {
+			return null;
+		}
+		Path fichier = Paths.get(repertoire, nom + "_" + region.xmin + "_" + region.xmax + "_" + region.ymin + "_" + region.ymax + ".dist");
+		try {
+			MappedDistanceField champ = charger(region, fichier);
+			if (champ == null) {
+				DistanceField complet = new DistanceField(region);
+				complet.calculerTout();
+				sauvegarder(complet, fichier);
+				champ = charger(region, fichier);
+			}
+			return champ;
+		} catch (IOException e) {
+			System.err.format("IOException: %s%n", e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Map the file, return null if it does not exist or does not correspond to 'region'
+	 */
+	static MappedDistanceField charger(DistanceField region, Path fichier) throws IOException {
+		if (!Files.exists(fichier)) {
+			return null;
+		}
+		try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+			long taille = TAILLE_ENTETE + region.tailleTable();
+			if (canal.size() != taille) {
+				return null;
+			}
+			MappedByteBuffer tampon = canal.map(FileChannel.MapMode.READ_ONLY, 0, taille);
+			if (tampon.getInt() != MAGIC || tampon.getInt() != VERSION || tampon.getLong() != empreinte(region)
+					|| tampon.getInt() != region.xmin || tampon.getInt() != region.xmax || tampon.getInt() != region.ymin || tampon.getInt() != region.ymax
+					|| tampon.getInt() != region.n || tampon.getInt() != (region.courtes() ? 2 : 4)) {
+				return null;
+			}
+			return new MappedDistanceField(region, tampon);
+		}
+	}
+	
+	/**
+	 * Write the table of 'complet' in the file: the file is written under a temporary name then renamed,
+	 * so that another process never maps a partially written file
+	 */
+	static void sauvegarder(DistanceField complet, Path fichier) throws IOException {
+		if (fichier.getParent() != null) {
+			Files.createDirectories(fichier.getParent());
+		}
+		Path temporaire = SolutionWriter.temporaire(fichier.toAbsolutePath());
+		try {
+			try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				ByteBuffer entete = ByteBuffer.allocate(TAILLE_ENTETE);
+				entete.putInt(MAGIC).putInt(VERSION).putLong(empreinte(complet));
+				entete.putInt(complet.xmin).putInt(complet.xmax).putInt(complet.ymin).putInt(complet.ymax);
+				entete.putInt(complet.n).putInt(complet.courtes() ? 2 : 4);
+				ecrire(canal, entete);
+				// une tranche (le champ d'un robot) par ecriture
+				ByteBuffer tranche = ByteBuffer.allocate(complet.tailleTranche * (complet.courtes() ? 2 : 4));
+				for (int i = 0; i < complet.n; i++) {
+					if (complet.distancesCourtes != null) {
+						tranche.asShortBuffer().put(complet.distancesCourtes, i * complet.tailleTranche, complet.tailleTranche);
+					} else {
+						tranche.asIntBuffer().put(complet.distancesLongues, i * complet.tailleTranche, complet.tailleTranche);
+					}
+					tranche.position(tranche.capacity());
+					ecrire(canal, tranche);
+				}
+			}
+			SolutionWriter.remplacer(temporaire, fichier);
+		} finally {
+			Files.deleteIfExists(temporaire);
+		}
+	}
+	
+	static void ecrire(FileChannel canal, ByteBuffer tampon) throws IOException {
+		tampon.flip();
+		while (tampon.hasRemaining()) {
+			canal.write(tampon);
+		}
+		tampon.clear();
+	}
+	
+	/**
+	 * Hash (FNV-1a, 64 bits) of the region, the sources and the obstacles of a field
+	 */
+	static long empreinte(DistanceField region) {
+		long h = 0xcbf29ce484222325L;
+		h = melanger(h, region.xmin);
+		h = melanger(h, region.xmax);
+		h = melanger(h, region.ymin);
+		h = melanger(h, region.ymax);
+		for (int i = 0; i < region.n; i++) {
+			h = melanger(h, region.sourceX[i]);
+			h = melanger(h, region.sourceY[i]);
+		}
+		for (int c = 0; c < region.tailleTranche; c++) {
+			if (region.obstacle[c]) {
+				h = melanger(h, c);
+			}
+		}
+		return h;
+	}
+	
+	static long melanger(long h, int v) {
+		for (int k = 0; k < 4; k++) {
+			h ^= (v >>> (8 * k)) & 0xff;
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+	
+	@Override
+	int distanceDansRegion(int i, int c) {
+		if (courtes != null) {
+			return courtes.get(i * tailleTranche + c);
+		}
+		return longues.get(i * tailleTranche + c);
+	}
+	
+	/**
+	 * Return the memory used on the heap (in bytes): the table itself is in the page cache
+	 */
+	@Override
+	public long memoryFootprint() {
+		return 8L * n + memoireObstacles();
+	}
+}
@@ -59,9 +59,9 @@ public class MotionViewer extends PApplet {
 			System.out.println("Input solution: "+inputSolution);
 		}
 		
-		if(inputFile.endsWith(".json")==false) {
+		if(inputFile.endsWith(".json")==false && BinaryFormat.magic(inputFile)!=BinaryFormat.MAGIC_INSTANCE) {
 			System.out.println("Error: wrong input format");
-			System.out.println("Supported input format: JSON format");
+			System.out.println("Supported input formats: JSON format, binary format (see BinaryFormat)");
 			System.exit(0);
 		}
 
@@ -100,7 +100,7 @@ public class MotionViewer extends PApplet {
 		System.out.println("Running motion viewer");
 		System.out.println("\t input problem: "+this.input.n+" robots");
 		if(this.solution!=null) {
-			System.out.println("\t input solution: "+this.solution.steps.size()+" time steps");
+			System.out.println("\t input solution: "+this.solution.makespan()+" time steps");
 		}
 		
 		this.sizeT=this.cellSize-6;
@@ -108,17 +108,17 @@ public class MotionViewer extends PApplet {
 		
 		this.timeStep=0; // at the beginning the time step is t=0 by default (robots are located at their initial positions)
 		
-		if(this.solution==null || this.solution.steps.size()==0) { // no solution defined (only starting and target positions are displayed)
+		if(this.solution==null || this.solution.makespan()==0) { // no solution defined (only starting and target positions are displayed)
 			this.robotLocations=new Coordinates[1];
 			this.robotLocations[0]=new Coordinates(this.input.starts.getPositions()); // robots are located at initial positions
 		}
 		else {
-			int nSteps=this.solution.steps.size();
+			int nSteps=this.solution.makespan();
 			this.robotLocations=new Coordinates[nSteps+1];
 			this.robotLocations[0]=new Coordinates(this.input.starts.getPositions()); // initialize robot locations
 			
 			for(int i=0; i<nSteps;i++) { // given the solution, set the robot locations at each time step
-				this.robotLocations[i+1]=MotionAlgorithm.moveRobotsOneStep(this.robotLocations[i], this.solution.steps.get(i));
+				this.robotLocations[i+1]=MotionAlgorithm.moveRobotsOneStep(this.robotLocations[i], this.solution.getStep(i));
 			}
 		}
 	}
@@ -138,10 +138,10 @@ public class MotionViewer extends PApplet {
 
 	/** Move all robots to the next location, according to the current solution */
 	public void getNextRobotLocation() {
-		if(this.solution.steps.size()==0) {
+		if(this.solution.makespan()==0) {
 			System.out.println("No solution defined (empty solution)");
 		}
-		if(this.timeStep>=this.solution.steps.size()) // no more time steps to show
+		if(this.timeStep>=this.solution.makespan()) // no more time steps to show
 			return;
 		
 		this.timeStep++;
@@ -150,7 +150,7 @@ public class MotionViewer extends PApplet {
 
 	/** Move all robots to the previous location, according to the current solution */
 	public void getPreviousRobotLocation() {
-		if(this.solution.steps.size()==0) {
+		if(this.solution.makespan()==0) {
 			System.out.println("No solution defined (empty solution)");
 		}
 		if(this.timeStep<=0) // no more time steps to show
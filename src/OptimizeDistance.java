@@ -16,9 +16,9 @@ public class OptimizeDistance {
 
 		String inputFile=args[0]; // input file storing the input instance
 		System.out.println("Input file: "+inputFile);
-		if(inputFile.endsWith(".json")==false) {
+		if(inputFile.endsWith(".json")==false && BinaryFormat.magic(inputFile)!=BinaryFormat.MAGIC_INSTANCE) {
 			System.out.println("Error: wrong input format");
-			System.out.println("Supported input format: JSON format");
+			System.out.println("Supported input formats: JSON format, binary format (see BinaryFormat)");
 			System.exit(0);
 		}
 
@@ -95,15 +95,18 @@ public class OptimizeMakespan {
 		
 		String inputFile=args[0]; // input file storing the input instance
 		System.out.println("Input file: "+inputFile);
-		if(inputFile.endsWith(".json")==false) {
+		if(inputFile.endsWith(".json")==false && BinaryFormat.magic(inputFile)!=BinaryFormat.MAGIC_INSTANCE) {
 			System.out.println("Error: wrong input format");
-			System.out.println("Supported input format: JSON format");
+			System.out.println("Supported input formats: JSON format, binary format (see BinaryFormat)");
 			System.exit(0);
 		}
 
 		input=IO.loadInputInstance(inputFile); // read the input file
 		System.out.println(input);
 		
+		// Les champs de distance aux cibles sont stockes sur disque et partages entre les processus
+		DistanceCache.repertoire = "distances/";
+		
 		
 		for (int i = 0; i < pmax+1; i++) { 
             data[i] = new ArrayList<Integer>(); 
@@ -138,7 +141,7 @@ public class OptimizeMakespan {
 						{
 							// Ecriture log tests 
 							FileWriter fw = new FileWriter("log/" + input.name + "_log.csv", true); 
-							fw.write(p + ";" + algo.solutionFound + ";" + algo.getSolution().steps.size() + "\n"); 
+							fw.write(p + ";" + algo.solutionFound + ";" + algo.getSolution().makespan() + "\n"); 
 							fw.close();
 						}
 						catch(IOException ioe)
@@ -146,15 +149,15 @@ public class OptimizeMakespan {
 						 System.err.println(ioe.getMessage());
 						}
 						
-						nbSteps = algo.getSolution().steps.size();
+						nbSteps = algo.getSolution().makespan();
 						calculReussi = algo.solutionFound;
 						Solution solution=algo.getSolution();
 						System.out.println(solution); // print the statistics
 						System.out.println("p=" + p);
 						
-						if (algo.solutionFound && solution.steps.size() < bestSolutionFound) { 
+						if (algo.solutionFound && solution.makespan() < bestSolutionFound) { 
 							IO.saveSolutionToJSON(solution, "solutions/" + input.name + "_makespan.json"); // export the solution in JSON format
-							bestSolutionFound= solution.steps.size(); 
+							bestSolutionFound= solution.makespan(); 
 							dmaxRobotCible = algo.dmaxRobotCible; 
 						} 
 						
@@ -0,0 +1,63 @@
+/**
+ * Distance fields obtained from existing fields when the sources of some robots change:
+ * only the fields of the robots whose source moved are recomputed, the others are read in the base fields.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+public class PatchedDistanceField implements DistanceOracle {
+	
+	/** Champs de depart, valables pour les robots dont la source n'a pas change **/
+	public final DistanceOracle base;
+	
+	/** Champs recalcules, pour les robots dont la source a change **/
+	final DistanceOracle modifies;
+	
+	/** indice[i] contient l'indice du robot i dans les champs recalcules, -1 si sa source n'a pas change **/
+	final int[] indice;
+	
+	/** Number of robots whose field was recomputed **/
+	public final int nbModifies;
+	
+	/**
+	 * Build the fields for the sources 'nouvelles' from the fields 'base' computed for the sources 'anciennes'
+	 */
+	public PatchedDistanceField(Instance input, DistanceOracle base, Coordinates anciennes, Coordinates nouvelles) {
+		this.base = base;
+		int n = nouvelles.size();
+		indice = new int[n];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			if (anciennes.getX(i) != nouvelles.getX(i) || anciennes.getY(i) != nouvelles.getY(i)) {
+				indice[i] = k;
+				k++;
+			} else {
+				indice[i] = -1;
+			}
+		}
+		nbModifies = k;
+		
+		Coordinates sources = new Coordinates(nbModifies);
+		for (int i = 0; i < n; i++) {
+			if (indice[i] >= 0) {
+				sources.setX(indice[i], nouvelles.getX(i));
+				sources.setY(indice[i], nouvelles.getY(i));
+			}
+		}
+		modifies = nbModifies > 0 ? DistanceField.creer(input, sources) : null;
+	}
+	
+	@Override
+	public int getDistance(int i, int x, int y) {
+		if (indice[i] < 0) {
+			return base.getDistance(i, x, y);
+		}
+		return modifies.getDistance(indice[i], x, y);
+	}
+	
+	@Override
+	public long memoryFootprint() {
+		return 4L * indice.length + (modifies != null ? modifies.memoryFootprint() : 0);
+	}
+}
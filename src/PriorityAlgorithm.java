@@ -5,7 +5,6 @@
  * @author Dan Meller (Ecole Polytechnique)
  */
 
-import java.util.LinkedList;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -32,36 +31,81 @@ public class PriorityAlgorithm extends MotionAlgorithm {
 	/** Number of robots **/
 	public int n;
 	
-	/** Contient la ligne de solution courante **/
+	/** Contient la ligne de solution courante : -1 pour les robots qui n'ont pas (encore) recu de mouvement pendant le tour **/
 	public byte[] currentMoves;
 	
+	/** Robots qui ont recu un mouvement pendant le tour (choisi ou pousses) : ce sont les seules cases de currentMoves
+	 * differentes de -1, remises a -1 au debut du tour suivant **/
+	int[] assignes;
+	int nbAssignes;
+	
 	/** Mouvements interdits **/
 	public byte[] interdit;
 	
-	Integer[] robots;
+	/** Robots par priorite decroissante (ordre.ordre), recalcule a chaque tour : seuls les nbRobots premiers sont evalues **/
+	BucketOrder ordre;
+	int[] robots;
+	int nbRobots;
+	
+	/** Mode evenementiel : on n'evalue que les robots actifs (pas encore arrives, voisins d'un robot pas encore arrive, ou voisins d'une case
+	 * dont l'occupant a change au tour precedent). Les autres restent immobiles s'ils ne sont pas pousses **/
+	public boolean modeActif = false;
+	int[] actifs;
+	int nbActifs;
+	/** Robots qui ont bouge pendant le tour, et marques (numero du tour) pour ne pas compter deux fois un robot actif **/
+	int[] bouges;
+	int nbBouges;
+	int[] marque;
+	int tour = 0;
+	
+	/** Nombre de robots qui ne sont pas sur leur cible (tousArrives vaut nbPasArrives == 0) **/
+	int nbPasArrives;
 	
 	/** Detection d'oscillation **/
 	int dmin = -1;
 	int kebloPendant;
 	
-	/** Bounding box for grid **/
+	/** Empreinte de Zobrist de la configuration courante, et empreintes visitees depuis la derniere amelioration de dmin :
+	 * si detecterCycles vaut true, on s'arrete des qu'une configuration revient (cycle vaut alors true).
+	 * Desactive par defaut : l'empreinte ne porte que sur les positions, alors que chooseMotion est aleatoire et depend
+	 * des interdictions, donc une configuration qui revient n'est pas forcement un cycle **/
+	long empreinte;
+	HashHistory historique = new HashHistory();
+	public boolean detecterCycles = false;
+	boolean cycle = false;
+	
+	/** Journal d'annulation des kebloMax + 1 dernieres etapes (run n'en annule pas plus), en anneau : l'etape k occupe la tranche
+	 * k % etapesJournal, de n cases dans chacun des journaux. journalMouvements contient les robots qui ont bouge (la case quittee
+	 * se deduit du mouvement enregistre dans la solution), journalInterdits les interdictions modifiees, empaquetees en
+	 * (robot << 3 | ancienne valeur + 1) : un robot bouge et choisit son mouvement au plus une fois par etape, n cases suffisent.
+	 * Les journaux sont alloues une fois pour toutes (de nouveau si kebloMax change). Apres fork, ils sont partages (journalPartage)
+	 * et chacun des deux algorithmes les recopie avant d'y ecrire : les etapes ne sont ecrites que par ouvrirEtape et la suite du tour **/
+	int etapesJournal;
+	int[] journalMouvements;
+	int[] journalInterdits;
+	int[] nbMouvements;
+	int[] nbInterdits;
+	/** empreinteAjoutee[tranche] : l'etape a ajoute la configuration atteinte a l'historique (a retirer si l'etape est annulee) **/
+	boolean[] empreinteAjoutee;
+	/** Plus ancienne etape encore dans le journal, et tranche de l'etape en cours **/
+	int premiereEtape;
+	int tranche;
+	boolean journalPartage;
+	
+	/** Bounding box of the instance **/
 	public int xmin; 
 	public int xmax;
 	public int ymin;
 	public int ymax;
 	
-	/** Bounding box for map **/
-    public int mxmin;
-    public int mxmax;
-    public int mymin;
-    public int mymax;
-    //FIXME : modifier la taille de la map en cours d'éxécution si un robot en sort
+	/** grid.getDistance(i,x,y) contient soit -1 si obstacle soit d(i,objectif(i)) **/
+	public DistanceOracle grid;
 	
-	/** grid[x][y][i] contient soit -1 si obstacle soit d(i,objectif(i)) **/
-	public Integer[][][] grid;
+	/** curDist[i] = getDistance(i, current.getX(i), current.getY(i)), tenu a jour par executeMotions et rembobiner **/
+	public int[] curDist;
 	
-	/** map[dx][dy] contient k si le k-ieme robot de current est à la position (mxmin + dx, mymin + dy), -1 s'il y a un obstacle à cette position, et -2 sinon **/
-	public int[][] map;
+	/** map.get(x,y) contient k si le k-ieme robot de current est à la position (x, y), -1 s'il y a un obstacle à cette position, et -2 sinon **/
+	public TiledMap map;
 	public Random rd = new Random();
 	public boolean tousArrives = false;
 	
@@ -69,6 +113,20 @@ public class PriorityAlgorithm extends MotionAlgorithm {
 	// Plus grande distance d'un robot � sa cible 
 	public int dmaxRobotCible; 
 	
+	/** Deplacements (dx,dy) et mouvement oppose, indexes par le byte du mouvement (0 immobile, 1 N, 2 S, 3 E, 4 W) **/
+	static final int[] DX = {0, 0, 0, 1, -1};
+	static final int[] DY = {0, 1, -1, 0, 0};
+	static final byte[] ROTATION180 = {0, 2, 1, 4, 3};
+	
+	/** Statuts renvoyes par checkMove **/
+	static final int IMPOSSIBLE = 0;
+	static final int POSSIBLE = 1;
+	static final int DEGAGE = 2;
+	
+	/** Tampons de chooseMotion, reutilises d'un robot a l'autre **/
+	private final int[] options = new int[5];
+	private final byte[] ameliorations = new byte[4];
+	
 	
 	public PriorityAlgorithm(Instance input) {
 		this.input=input;
@@ -76,77 +134,130 @@ public class PriorityAlgorithm extends MotionAlgorithm {
 		this.current=new Coordinates(this.input.starts.getPositions()); // initialize the current locations with the starting input locations
 		n = input.n;
 		currentMoves = new byte[n];
+		Arrays.fill(currentMoves, (byte) -1);
+		assignes = new int[n];
 		xmin = input.xmin - 1; 
 		xmax = input.xmax + 1;
 		ymin = input.ymin - 1;
 		ymax = input.ymax + 1;
-		mxmin = xmin - 2 * (xmax - xmin);
-	    mxmax = xmax + 2 * (xmax - xmin);
-	    mymin = ymin - 2 * (ymax - ymin);
-	    mymax = ymax + 2 * (ymax - ymin);
 	    
 	    interdit = new byte[n]; 
 	    for (int i=0;i<n;i++) { 
 	    	interdit[i]=-1;
 	    }
+	    ordre = new BucketOrder(n);
+	    robots = ordre.ordre;
+	    
+	    // Au depart tous les robots sont actifs
+	    actifs = new int[n];
+	    for (int i=0;i<n;i++) { 
+	    	actifs[i]=i;
+	    }
+	    nbActifs = n;
+	    bouges = new int[n];
+	    marque = new int[n];
+	    allouerJournal();
+	    
+	    for (int i=0;i<n;i++) { 
+	    	empreinte ^= HashHistory.zobrist(i, current.getX(i), current.getY(i));
+	    	if (!surCible(i)) {
+	    		nbPasArrives++;
+	    	}
+	    }
 		
 		this.initMap();
 	    this.initGrid();
 	}
 	
-	public void initGrid(){
+	/**
+	 * Copie de l'etat d'un autre algorithme entre deux etapes (voir fork)
+	 */
+	private PriorityAlgorithm(PriorityAlgorithm autre) {
+		input = autre.input;
+		n = autre.n;
+		limite = autre.limite;
+		kebloMax = autre.kebloMax;
+		modeActif = autre.modeActif;
+		detecterCycles = autre.detecterCycles;
+		xmin = autre.xmin;
+		xmax = autre.xmax;
+		ymin = autre.ymin;
+		ymax = autre.ymax;
 		
-		grid = new Integer[xmax - xmin + 1][ymax - ymin + 1][n];
+		// Les distances ne changent pas : elles sont partagees, sauf le cache des champs calcules a la demande,
+		// qui est propre a chaque copie (LazyDistanceField n'est pas thread-safe)
+		grid = autre.grid instanceof LazyDistanceField ? new LazyDistanceField((LazyDistanceField) autre.grid) : autre.grid;
 		
-	    /** Initialisation des obstacles **/ 
-	    for (int j=0; j<this.input.obstacles.size();j++) { 
-	    	int x = this.input.obstacles.getX(j);
-	    	int y = this.input.obstacles.getY(j); 
-	        for (int i=0;i<n;i++) { 
-	        	grid[x-xmin][y-ymin][i]=-1;
-	        }
-	    }
-	    /** calcul des distances : parcours en largeur **/ 
-		for (int i=0;i<n;i++) { 
-		    LinkedList<int[]> Q;
-		    Q = new LinkedList<int[]>();
-		    int sourceX = input.targets.getX(i);
-		    int sourceY = input.targets.getY(i);
-		    grid[sourceX-xmin][sourceY-ymin][i]=0;
-		    Q.add(new int[] {sourceX-xmin,sourceY-ymin}) ; 
-			while (!Q.isEmpty()) {
-			    int[] caseTablo= Q.pop();
-			    int x = caseTablo[0];
-			    int y = caseTablo[1]; 
-			    
-			    for (int dx=-1;dx<=1;dx=dx+2) {
-			    	if (x+dx<=xmax-xmin&& x+dx>=0) {
-			            if (grid[x+dx][y][i] == null) {
-			                grid[x+dx][y][i] = grid[x][y][i]+1;
-			                Q.add(new int[] {x +dx,y});
-			            }
-			    	}
-			    } 
-		        for (int dy=-1;dy<=1;dy=dy+2) {
-		        	if (y+dy<=ymax-ymin&&y+dy>=0) {
-				        if (grid[x][y+dy][i] == null) {
-				            grid[x][y+dy][i]  = grid[x][y][i]+1;
-				            Q.add(new int[] {x,y+dy});
-				        }
-		        	}
-		        }
-			}
+		// Les etapes deja calculees sont partagees, et recopiees a la premiere ecriture qui pourrait les modifier
+		solution = autre.solution.copie();
+		
+		current = new Coordinates(autre.current.getPositions());
+		curDist = autre.curDist.clone();
+		interdit = autre.interdit.clone();
+		currentMoves = new byte[n];
+		Arrays.fill(currentMoves, (byte) -1);
+		assignes = new int[n];
+		map = autre.map.copie();
+		ordre = new BucketOrder(n);
+		robots = ordre.ordre;
+		
+		actifs = autre.actifs.clone();
+		nbActifs = autre.nbActifs;
+		bouges = new int[n];
+		marque = new int[n];
+		tour = autre.tour;
+		
+		dmin = autre.dmin;
+		kebloPendant = autre.kebloPendant;
+		dmaxRobotCible = autre.dmaxRobotCible;
+		tousArrives = autre.tousArrives;
+		nbPasArrives = autre.nbPasArrives;
+		empreinte = autre.empreinte;
+		historique = autre.historique.copie();
+		cycle = autre.cycle;
+		
+		// Le journal est partage jusqu'a la prochaine etape de chacun des deux algorithmes
+		etapesJournal = autre.etapesJournal;
+		journalMouvements = autre.journalMouvements;
+		journalInterdits = autre.journalInterdits;
+		nbMouvements = autre.nbMouvements;
+		nbInterdits = autre.nbInterdits;
+		empreinteAjoutee = autre.empreinteAjoutee;
+		premiereEtape = autre.premiereEtape;
+		journalPartage = true;
+		autre.journalPartage = true;
+	}
+	
+	/**
+	 * Renvoie une copie independante de l'etat courant (a appeler entre deux etapes), qui peut continuer differemment :
+	 * les distances sont partagees, la carte est partagee tuile par tuile jusqu'a la premiere
+	 * ecriture, les etapes deja calculees de la solution sont partagees de la meme facon (voir Solution.copie), le journal
+	 * d'annulation jusqu'a l'etape suivante. La copie a son propre generateur aleatoire et son propre cache de champs
+	 * calcules a la demande (LazyDistanceField) : la copie et l'original peuvent etre utilises par deux threads, a condition
+	 * qu'un oracle de distances fourni par l'appelant (grid) puisse lui-meme etre lu par plusieurs threads
+	 */
+	public PriorityAlgorithm fork() {
+		return new PriorityAlgorithm(this);
+	}
+	
+	public void initGrid(){
+		grid = DistanceField.creer(input, input.targets);
+		initDistances();
+	}
+	
+	/**
+	 * Recalcule toutes les distances courantes (a refaire si grid change)
+	 */
+	public void initDistances(){
+		curDist = new int[n];
+		for (int i = 0; i < n; i++) {
+			curDist[i] = getDistance(i, current.getX(i), current.getY(i));
 		}
 	}
 	
 	public void initMap(){
-		map = new int[mxmax - mxmin + 1][mymax - mymin + 1];
+		map = new TiledMap(-2);
 		int x,y;
-	    for (int i = 0; i < map.length; i++){
-	        for (int j = 0; j < map[i].length; j++){
-	            map[i][j] = -2;
-	        }
-	    }
 	    for (int i = 0; i < input.n; i++){
 	        x = input.starts.getX(i);
 	        y = input.starts.getY(i);
@@ -176,10 +287,11 @@ public class PriorityAlgorithm extends MotionAlgorithm {
 	 * Compute a complete solution to the input problem: compute all steps, until all robots reach their target destinations
 	 */
 	public void run() {
-		while (!tousArrives && solution.steps.size() <= limite && kebloPendant < kebloMax) {
+		while (!tousArrives && solution.makespan() <= limite && kebloPendant < kebloMax && !cycle) {
 			computeOneStep();
 		}
-		if (kebloPendant >= kebloMax)
+		// On revient a la configuration ou dmin a ete atteint
+		if (kebloPendant >= kebloMax || cycle)
 			rembobiner(kebloPendant);
 		System.out.println("Solution computed");
 	}
@@ -188,31 +300,33 @@ public class PriorityAlgorithm extends MotionAlgorithm {
 	 * Add a new motion step to the current solution
 	 */
 	public void computeOneStep() {
-	    int[] motion = new int[2]; // motion of one robot
 	    byte m; //motion of one robot as a byte
+	    ouvrirEtape();
 	    initRobots();  // list of the robots in order of decreasing priority
 	    
-	  
-	    
 	    int x, y, i, j;
-	    currentMoves = new byte[n];
-		for (i = 0; i < n; i++) {
-			currentMoves[i] = -1;
-		}
-	    for (int k = 0; k < robots.length; k++){
+	    // Seuls les robots du tour precedent ont un mouvement dans currentMoves
+	    for (int k = 0; k < nbAssignes; k++) {
+	    	currentMoves[assignes[k]] = -1;
+	    }
+	    nbAssignes = 0;
+	    for (int k = 0; k < nbRobots; k++){
 	    	i = robots[k];
 	    	if (currentMoves[i] == -1) {
-		        motion = chooseMotion(i);
-		        m = motionToByte(motion);
+		        m = chooseMotion(i);
 		        currentMoves[i] = m;
+		        assignes[nbAssignes++] = i;
 		        if (m != 0) {
-			        x = current.getX(i) + motion[0];
-			        y = current.getY(i) + motion[1];
+			        x = current.getX(i) + DX[m];
+			        y = current.getY(i) + DY[m];
 			        j = getMap(x,y);
 			        while (j >= 0){ // j is a robot who has to move to let i move
+			            if (currentMoves[j] == -1) {
+			            	assignes[nbAssignes++] = j;
+			            }
 			            currentMoves[j] = m;
-			            x = x + motion[0];
-			            y = y + motion[1];
+			            x = x + DX[m];
+			            y = y + DY[m];
 			            j = getMap(x,y);
 			        }
 		        }
@@ -224,17 +338,30 @@ public class PriorityAlgorithm extends MotionAlgorithm {
 	public void initRobots() {
 		int dmax;
 		
-		// On trie selon une comparaison des distances inversée (tri descendant) ) 
-		robots = new Integer[n];
-		for (int i = 0; i<n; i++) {
-			robots[i] = i;
+		if (modeActif) {
+			// Seuls les robots actifs sont tries (tous les robots pas encore arrivés en font partie : dmax est exact).
+			// Le tri est stable : on part de l'ordre des indices pour departager les distances egales comme dans le mode normal
+			nbRobots = nbActifs;
+			Arrays.sort(actifs, 0, nbActifs);
+			for (int k = 0; k < nbActifs; k++) {
+				robots[k] = actifs[k];
+				ordre.cles[actifs[k]] = curDist[actifs[k]];
+			}
+			ordre.trier(true, nbRobots);
+		} else {
+			// On trie selon les distances par ordre décroissant (à distance égale, par indice croissant) 
+			nbRobots = n;
+			ordre.initialiser();
+			System.arraycopy(curDist, 0, ordre.cles, 0, n);
+			ordre.trier(true);
 		}
-		Arrays.sort(robots, (Integer a, Integer b) -> Integer.compare(getDistance(b,current.getX(b),current.getY(b)), getDistance(a,current.getX(a),current.getY(a))));
 		
-		dmax = getDistance(robots[0],current.getX(robots[0]),current.getY(robots[0]));
+		dmax = nbRobots > 0 ? curDist[robots[0]] : 0;
 		if (dmax < dmin || dmin == -1) {
 			dmin = dmax;
 			kebloPendant = 1;
+			historique.vider();
+			historique.ajouter(empreinte);
 		} else {
 			kebloPendant += 1;
 		}
@@ -248,196 +375,392 @@ public class PriorityAlgorithm extends MotionAlgorithm {
 		System.out.println(" ");
 		
 		  //On r�cup�re la distance optimale que l'on remonte dans la chaine hi�rarchique 
-	    if (solution.steps.size()==0) { 
+	    if (solution.makespan()==0) { 
 	    	dmaxRobotCible = dmax; 
 	    }
 		
 		
 	}
 	
+	/**
+	 * Deplace les robots qui ont un mouvement non nul, en temps proportionnel au nombre de robots qui ont recu un mouvement :
+	 * les robots sans mouvement (-1) restent immobiles
+	 */
 	public void executeMotions() {
-		int[] motion;
+		byte mov;
 		int x, y;
-		solution.addStep(currentMoves);
-		tousArrives = true;
-		for (int i = 0; i<n;i++) {
-			motion = byteToMotion(currentMoves[i]);
+		nbBouges = 0;
+		for (int k = 0; k < nbAssignes; k++) {
+			int i = assignes[k];
+			if (currentMoves[i] > 0) {
+				bouges[nbBouges++] = i;
+			}
+		}
+		// Par indice croissant (voir Solution.addStep)
+		Arrays.sort(bouges, 0, nbBouges);
+		for (int k = 0; k < nbBouges; k++) {
+			int i = bouges[k];
+			mov = currentMoves[i];
 			x = current.getX(i);
 			y = current.getY(i);
+			noterMouvement(i);
+			empreinte ^= HashHistory.zobrist(i, x, y) ^ HashHistory.zobrist(i, x + DX[mov], y + DY[mov]);
+			if (surCible(i)) {
+				nbPasArrives++;
+			}
 			if (getMap(x,y) == i) {
 				setMap(x,y,-2);
 			}
-			setMap(x + motion[0],y+motion[1], i);
-			if (motion[0] == 1) {
-				current.increaseX(i);
-			}
-			if (motion[0] == -1) {
-				current.decreaseX(i);
+			x += DX[mov];
+			y += DY[mov];
+			setMap(x, y, i);
+			current.setX(i, x);
+			current.setY(i, y);
+			curDist[i] = getDistance(i, x, y);
+			if (surCible(i)) {
+				nbPasArrives--;
 			}
-			if (motion[1] == 1) {
-				current.increaseY(i);
+		}
+		tousArrives = nbPasArrives == 0;
+		solution.addStep(n, bouges, currentMoves, nbBouges);
+		if (modeActif) {
+			majActifs();
+		}
+		// Une configuration deja vue depuis la derniere amelioration : le systeme oscille
+		boolean ajoutee = false;
+		if (detecterCycles && !tousArrives) {
+			ajoutee = historique.ajouter(empreinte);
+			if (!ajoutee) {
+				cycle = true;
 			}
-			if (motion[1] == -1) {
-				current.decreaseY(i);
+		}
+		empreinteAjoutee[tranche] = ajoutee;
+	}
+	
+	/**
+	 * Robots actifs au tour suivant : ceux qui ne sont pas arrives et leurs voisins (un robot arrive doit pouvoir
+	 * degager pour un voisin bloque), et les occupants des cases voisines (ou egales) des cases quittees ou atteintes pendant ce tour
+	 */
+	void majActifs() {
+		tour++;
+		int nb = 0;
+		for (int k = 0; k < nbActifs; k++) {
+			int i = actifs[k];
+			if (!surCible(i) && marque[i] != tour) {
+				marque[i] = tour;
+				actifs[nb++] = i;
 			}
-			if (current.getX(i) != input.targets.getX(i) || current.getY(i) != input.targets.getY(i)) {
-				tousArrives = false;
+		}
+		// Tous les robots pas encore arrives sont actifs : ils sont en tete de actifs
+		int pasArrives = nb;
+		for (int k = 0; k < pasArrives; k++) {
+			int i = actifs[k];
+			nb = activerAutour(current.getX(i), current.getY(i), nb);
+		}
+		for (int k = 0; k < nbBouges; k++) {
+			int i = bouges[k];
+			byte mov = currentMoves[i];
+			int x = current.getX(i), y = current.getY(i);
+			nb = activerAutour(x, y, nb);
+			nb = activerAutour(x - DX[mov], y - DY[mov], nb);
+		}
+		nbActifs = nb;
+	}
+	
+	int activerAutour(int x, int y, int nb) {
+		for (byte mov = 0; mov < 5; mov++) {
+			int j = getMap(x + DX[mov], y + DY[mov]);
+			if (j >= 0 && marque[j] != tour) {
+				marque[j] = tour;
+				actifs[nb++] = j;
 			}
 		}
+		return nb;
 	}
 	
-	public Integer[] checkMove(int i, int[] motion) {
+	
+	public int checkMove(int i, byte mov) {
 		/**
-		* Si le motion est impossible renvoie 0,null
-		* Si le motion est OK renvoie 1,contentement 
-		* Injonction a la mobilite : 2,axeDeDegagement
+		* Si le motion est impossible renvoie IMPOSSIBLE
+		* Si le motion est OK renvoie POSSIBLE et le contentement 
+		* Injonction a la mobilite : DEGAGE et l'axe de degagement
+		* Le statut et la valeur sont empaquetes dans un int (voir statut() et valeur())
 		*/
-		int x = current.getX(i)+motion[0];
-	    int y = current.getY(i)+motion[1];
-	    int prioi = getDistance(i,current.getX(i),current.getY(i));
+		int dx = DX[mov];
+		int dy = DY[mov];
+		int x = current.getX(i)+dx;
+	    int y = current.getY(i)+dy;
+	    int prioi = curDist[i];
 		int j = getMap(x,y);
 		int content = 0 ;
-		byte bmotion = motionToByte(motion);
+		int g;
 		
-		if (interdit[i] == bmotion) {
-			return new Integer[] {0,null} ;
+		if (interdit[i] == mov) {
+			return IMPOSSIBLE;
 		}
 		
 		while(j >=0 && currentMoves[j]==-1) { 
-			if (interdit[j]==bmotion) {
-				return new Integer[] {0,null}; 
+			if (interdit[j]==mov) {
+				return IMPOSSIBLE; 
 			}
-			content += gain(j,motion);
+			g = gain(j,mov);
+			content += g;
 			//On teste si j a la priorité de i - 2 et si oui renvoie null
 			//On ne peut pas pousser contre leur gre les robots de meme classe sociale 
-			if (getDistance(j,x,y)>=prioi-2) {
-				if (gain(j,motion)<0) { 
-					return new Integer[] {0,null};
-					//Dans ce cas là il s'agit d'une situation de blocage : au prochain tour, j parle avant i et ça oscille 
-				}
+			if (g<0 && curDist[j]>=prioi-2) {
+				return IMPOSSIBLE;
+				//Dans ce cas là il s'agit d'une situation de blocage : au prochain tour, j parle avant i et ça oscille 
 			}
-			x = x+motion[0];
-		    y = y+motion[1];
+			x = x+dx;
+		    y = y+dy;
 		    j = getMap(x,y);
 		}
 		
-		if (j>=0 && currentMoves[j]==bmotion){
-			return new Integer[] {1,content};
+		if (j>=0 && currentMoves[j]==mov){
+			return resultat(POSSIBLE, content);
 		}
 		
 		//Si la case est vide on verifie que personne ne veuillent venir dessus pour l'instant 
 		if (j==-2) {
-			for(byte mov = 1;mov<5;mov++) {
-				int [] mouv = byteToMotion(mov);
-				int k = getMap(x+mouv[0],y+mouv[1]);
-				if (k>=0 && currentMoves[k] >= 0) {
-					//Le mouvement de la case vide vers k ne doit pas �tre l'oppose de celui de k vers la case vide
-					if (rotation180(mov)==currentMoves[k]) { 
-						return new Integer[] {0,null};
-					}
+			for(byte mov2 = 1;mov2<5;mov2++) {
+				int k = getMap(x+DX[mov2],y+DY[mov2]);
+				//Le mouvement de la case vide vers k ne doit pas �tre l'oppose de celui de k vers la case vide
+				if (k>=0 && currentMoves[k] >= 0 && ROTATION180[mov2]==currentMoves[k]) { 
+					return IMPOSSIBLE;
 				}
 			}
-			return new Integer[] {1,content};
+			return resultat(POSSIBLE, content);
 		}
 		
-		if (j>=0 && currentMoves[j]==0 && gain(j,byteToMotion(rotation180(bmotion)))>0) { 
-			int axe = 0 ; 
-			if (motion[0]!=0) { axe = 1; } 
-			if (motion[1]!=0) { axe = 0; } 
-			return new Integer[] {2,axe};
+		if (j>=0 && currentMoves[j]==0 && gain(j,ROTATION180[mov])>0) { 
+			int axe = (dx!=0) ? 1 : 0; 
+			return resultat(DEGAGE, axe);
 		}
 		
-		return new Integer[] {0,null}; //S'il y a un robot qui souhaite aller dans une direction perpendiculaire ou un obstacle
+		return IMPOSSIBLE; //S'il y a un robot qui souhaite aller dans une direction perpendiculaire ou un obstacle
 	}
 	
 	
-	public int[] chooseMotion(int i) {
-		Integer[][] options = new Integer[5][];
-		LinkedList<Byte> ameliorations = new LinkedList<Byte>(); // Liste des mouvements qui améliorent la situation du robot et maximisent le contentement des autres
+	public byte chooseMotion(int i) {
+		int nbAmeliorations = 0; // Nombre de mouvements qui améliorent la situation du robot et maximisent le contentement des autres (rangés dans ameliorations)
 		int m = 0; // m est le maximum des contentements
 		byte mtn = 0; //le mouvement que l'on va choisir
 		boolean degage = false; 
 		int axeDegagement = 0 ; 
+		int option;
 		for (byte j = 1; j < 5; j++) {
-			options[j] = checkMove(i, byteToMotion(j));
+			option = checkMove(i, j);
+			options[j] = option;
 			// MAJ de ameliorations et de m
-			if (gain(i, byteToMotion(j)) > 0 && options[j][0] == 1 && (ameliorations.size() == 0 || m <= options[j][1])) {
-				if (m < options[j][1]) {
-					ameliorations = new LinkedList<Byte>();
+			if (statut(option) == POSSIBLE && gain(i, j) > 0 && (nbAmeliorations == 0 || m <= valeur(option))) {
+				if (m < valeur(option)) {
+					nbAmeliorations = 0;
 				}
-				m = options[j][1];
-				ameliorations.add(j);
+				m = valeur(option);
+				ameliorations[nbAmeliorations++] = j;
 			}
 			// MAJ de degage et axeDegagement
-			if (options[j][0] == 2) {
+			if (statut(option) == DEGAGE) {
 				degage = true;
-				axeDegagement = options[j][1];
+				axeDegagement = valeur(option);
 			}
 		}
+		byte ancien = interdit[i];
 		interdit[i]=-1;
-		if (ameliorations.size() == 0 && degage) { // si aucune amélioration n'est possible, on vérifie qu'on ne doit pas dégager
+		if (nbAmeliorations == 0 && degage) { // si aucune amélioration n'est possible, on vérifie qu'on ne doit pas dégager
 			for (byte sens = 1; sens < 3; sens++) { //FIXME: choisir le meilleur sens de degagement et régler le cas où on ne peut pas dégager perpendiculairement (couloir d'obstacles)
 				int j = sens +2*(1-axeDegagement); 
 				//On degage perpendiculairement 
-				if (options[j][0]==1) { 
+				if (statut(options[j])==POSSIBLE) { 
 					mtn = (byte) j;
-					interdit[i]=rotation180(mtn);//Si on doit degager on commence par essayer de remplacer la valeur de mtn par autre chose que 0
+					interdit[i]=ROTATION180[mtn];//Si on doit degager on commence par essayer de remplacer la valeur de mtn par autre chose que 0
 				}
 			}
 		}
-		if (ameliorations.size() == 1) { // si une unique amélioration est possible et maximise le contentement on la choisit
-			mtn = ameliorations.pop();
+		if (nbAmeliorations == 1) { // si une unique amélioration est possible et maximise le contentement on la choisit
+			mtn = ameliorations[0];
 		}
-		if (ameliorations.size() == 2) { // en cas d'indifférence on choisit au hasard
-			if (rd.nextInt(2) == 0){
-				mtn = ameliorations.getFirst();
-			} else {
-				mtn = ameliorations.getLast();
-			}
+		if (nbAmeliorations == 2) { // en cas d'indifférence on choisit au hasard
+			mtn = ameliorations[rd.nextInt(2)];
 		} //sinon on reste immobile (c'est toujours mieux que de reculer)
-		return byteToMotion(mtn);
+		if (interdit[i] != ancien) {
+			noterInterdit(i, ancien);
+		}
+		return mtn;
 	}
 	
+	/**
+	 * Annule les k dernieres etapes (voir annulerEtape)
+	 */
 	public void rembobiner(int k) {
-		byte[] lastMove;
-		int x, y;
-		int[] motion;
-		for (int j = 0; j < k; j++) {
-			lastMove = solution.popStep();
-			for (int i = 0; i<n; i++) {
-				x = current.getX(i);
-				y = current.getY(i);
-				motion = byteToMotion(rotation180(lastMove[i]));
-				current.setX(i, x+motion[0]);
-				current.setY(i, y+motion[1]);
+		for (int j = 0; j < k && solution.makespan() > 0; j++) {
+			annulerEtape();
+		}
+	}
+	
+	/**
+	 * Annule la derniere etape a partir du journal, en temps proportionnel au nombre de robots qui ont bouge : 
+	 * current, map, curDist, l'empreinte, les interdictions et les robots actifs sont restaures ensemble.
+	 * Seules les kebloMax + 1 dernieres etapes calculees peuvent etre annulees.
+	 * L'historique des configurations perd la configuration annulee ; la detection d'oscillation (dmin, kebloPendant) n'est pas restauree
+	 */
+	public void annulerEtape() {
+		int etape = solution.makespan() - 1;
+		if (etape < premiereEtape) {
+			throw new Error("Error: step " + etape + " is no longer in the undo journal (only the last " + etapesJournal + " steps are kept)");
+		}
+		int t = etape % etapesJournal;
+		int debut = t * n, fin = debut + nbMouvements[t];
+		
+		// La configuration atteinte par l'etape n'est plus sur le chemin parcouru
+		if (empreinteAjoutee[t]) {
+			historique.retirer(empreinte);
+		}
+		
+		// On libere d'abord toutes les cases atteintes : un robot peut revenir sur la case d'arrivee d'un autre
+		for (int e = debut; e < fin; e++) {
+			int i = journalMouvements[e];
+			int x = current.getX(i), y = current.getY(i);
+			if (getMap(x,y) == i) {
+				setMap(x,y,-2);
+			}
+		}
+		tour++;
+		int nb = nbActifs;
+		for (int e = debut; e < fin; e++) {
+			int i = journalMouvements[e];
+			byte mov = solution.getMove(etape, i);
+			int x = current.getX(i) - DX[mov], y = current.getY(i) - DY[mov];
+			empreinte ^= HashHistory.zobrist(i, current.getX(i), current.getY(i)) ^ HashHistory.zobrist(i, x, y);
+			if (surCible(i)) {
+				nbPasArrives++;
 			}
+			setMap(x, y, i);
+			current.setX(i, x);
+			current.setY(i, y);
+			curDist[i] = getDistance(i, x, y);
+			if (surCible(i)) {
+				nbPasArrives--;
+			}
+		}
+		if (modeActif) {
+			// Les robots deja actifs sont marques pour ne pas etre ajoutes deux fois
+			for (int k = 0; k < nbActifs; k++) {
+				marque[actifs[k]] = tour;
+			}
+			for (int e = debut; e < fin; e++) {
+				int i = journalMouvements[e];
+				byte mov = solution.getMove(etape, i);
+				int x = current.getX(i), y = current.getY(i);
+				nb = activerAutour(x, y, nb);
+				nb = activerAutour(x + DX[mov], y + DY[mov], nb);
+			}
+			nbActifs = nb;
 		}
+		solution.popStep();
+		
+		for (int e = t * n + nbInterdits[t] - 1; e >= t * n; e--) {
+			interdit[journalInterdits[e] >>> 3] = (byte) ((journalInterdits[e] & 7) - 1);
+		}
+		
+		tousArrives = nbPasArrives == 0;
+		cycle = false;
+	}
+	
+	/**
+	 * Tranche du journal de l'etape qui va etre calculee (elle remplace la plus ancienne si le journal est plein)
+	 */
+	void ouvrirEtape() {
+		if (etapesJournal != kebloMax + 1) {
+			allouerJournal();
+		} else if (journalPartage) {
+			detacherJournal();
+		}
+		int etape = solution.makespan();
+		if (etape - premiereEtape >= etapesJournal) {
+			premiereEtape = etape - etapesJournal + 1;
+		}
+		tranche = etape % etapesJournal;
+		nbMouvements[tranche] = 0;
+		nbInterdits[tranche] = 0;
+	}
+	
+	/**
+	 * Alloue un journal vide de kebloMax + 1 etapes : les etapes deja calculees ne peuvent plus etre annulees
+	 */
+	void allouerJournal() {
+		etapesJournal = kebloMax + 1;
+		journalMouvements = new int[etapesJournal * n];
+		journalInterdits = new int[etapesJournal * n];
+		nbMouvements = new int[etapesJournal];
+		nbInterdits = new int[etapesJournal];
+		empreinteAjoutee = new boolean[etapesJournal];
+		premiereEtape = solution.makespan();
+		journalPartage = false;
+	}
+	
+	/**
+	 * Recopie le journal partage avec une copie (voir fork) avant d'y ecrire
+	 */
+	void detacherJournal() {
+		journalMouvements = journalMouvements.clone();
+		journalInterdits = journalInterdits.clone();
+		nbMouvements = nbMouvements.clone();
+		nbInterdits = nbInterdits.clone();
+		empreinteAjoutee = empreinteAjoutee.clone();
+		journalPartage = false;
+	}
+	
+	void noterMouvement(int i) {
+		journalMouvements[tranche * n + nbMouvements[tranche]++] = i;
+	}
+	
+	void noterInterdit(int i, byte ancien) {
+		journalInterdits[tranche * n + nbInterdits[tranche]++] = i << 3 | (ancien + 1);
 	}
 	
 	/**
 	 * FONCTIONS SECONDAIRES-----------------------------------------------------------------------------------------------------------
 	 */
 	
+	/** Le robot i est sur sa cible **/
+	boolean surCible(int i) {
+		return current.getX(i) == input.targets.getX(i) && current.getY(i) == input.targets.getY(i);
+	}
+	
 	public int getMap(int x, int y) { 
-		return map[x-mxmin][y-mymin];
+		return map.get(x, y);
 	}
 	
 	public void setMap(int x, int y, int val) { 
-		map[x-mxmin][y-mymin]= val;
+		map.set(x, y, val);
 	}
 	
 	public int getDistance(int i,int x, int y){
 		/**Renvoie la distance du robot i à sa source **/
-		/** les deux premiers termes correspondent au retour au rectangle connu**/
-		int dRetour= Math.max(Math.max(y-ymax,ymin-y),0)+Math.max(Math.max(x-xmax,xmin-x),0);
-		return dRetour + grid[Math.max(Math.min(x, xmax),xmin)-xmin][Math.max(Math.min(y, ymax),ymin)-ymin][i];
+		return grid.getDistance(i, x, y);
 	}
 	
 	public int gain(int i, int[] motion) { 
 		//Retourne +1 si jamais le mouv plait � i, -1 si �a lui plait pas et 0 sinon 
-		int x = this.current.getX(i);
-		int y = this.current.getY(i);
-		return getDistance(i,x,y) - getDistance(i,x+motion[0],y+motion[1]);
+		return curDist[i] - getDistance(i, current.getX(i) + motion[0], current.getY(i) + motion[1]);
+	}
+	
+	public int gain(int i, byte mov) { 
+		return grid.gain(i, current.getX(i), current.getY(i), DX[mov], DY[mov], curDist[i]);
+	}
+	
+	/** Empaquetage du resultat de checkMove : statut sur les deux bits de poids faible, valeur au-dessus **/
+	static int resultat(int statut, int valeur) {
+		return (valeur << 2) | statut;
+	}
+	
+	static int statut(int resultat) {
+		return resultat & 3;
+	}
+	
+	static int valeur(int resultat) {
+		return resultat >> 2;
 	}
 	
 	public void afficheGrid(int i) {
@@ -469,7 +792,8 @@ public class PriorityAlgorithm extends MotionAlgorithm {
 	}
 	
 	public static byte rotation180(byte mov) { 
-		return rotationD(rotationD(mov));
+		// Comme l'ancien switch : 0 pour une valeur qui n'est pas un mouvement (par exemple -1, robot sans mouvement)
+		return mov >= 0 && mov < ROTATION180.length ? ROTATION180[mov] : 0;
 	}
 	
 	public static byte rotationG(byte mov) { 
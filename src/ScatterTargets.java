@@ -6,7 +6,6 @@
  */
 
 import java.util.LinkedList;
-import java.util.Arrays;
 import java.util.Random;
 
 public class ScatterTargets extends MotionAlgorithm {
@@ -40,26 +39,22 @@ public class ScatterTargets extends MotionAlgorithm {
 	//box[i][0] contient le robot Nord, 1 : S, 2 : E, 3 :W 
 	public int[][] box;
 	
-	/** Bounding box for grid **/
+	/** Bounding box of the instance **/
 	public int xmin; 
 	public int xmax;
 	public int ymin;
 	public int ymax;
 	
-	/** Bounding box for map **/
-    public int mxmin;
-    public int mxmax;
-    public int mymin;
-    public int mymax;
-    //FIXME : modifier la taille de la map en cours d'éxécution si une cible en sort
+	/** grid.getDistance(i,x,y) contient soit -1 si obstacle soit d(i,objectif(i)) **/
+	public DistanceOracle grid;
 	
-	/** grid[x][y][i] contient soit -1 si obstacle soit d(i,objectif(i)) **/
-	public Integer[][][] grid;
-	
-	/** map[dx][dy] contient k si le k-ieme robot de current est à la position (mxmin + dx, mymin + dy), -1 s'il y a un obstacle à cette position, et -2 sinon **/
-	public int[][] mapCible; 	
+	/** mapCible.get(x,y) contient k si la cible du k-ieme robot est à la position (x, y), -1 s'il y a un obstacle à cette position, et -2 sinon **/
+	public TiledMap mapCible; 	
 	public Random rd = new Random();
 	
+	/** Ordre dans lequel les cibles bougent, recalcule a chaque tour **/
+	BucketOrder ordre;
+	
 	public ScatterTargets(Instance input) {
 		this.input=input;
 		this.solution=new Solution(input.name); // create an empty solution (no steps at the beginning)
@@ -67,14 +62,11 @@ public class ScatterTargets extends MotionAlgorithm {
 		n = input.n;
 		currentMoves = new byte[n];
 		mouvementAutorise = new boolean[n];
-		xmin = input.xmin - 1 - p; 
-		xmax = input.xmax + 1 + p;
-		ymin = input.ymin - 1 - p;
-		ymax = input.ymax + 1 + p;
-		mxmin = xmin - 2 * (xmax - xmin);
-	    mxmax = xmax + 2 * (xmax - xmin);
-	    mymin = ymin - 2 * (ymax - ymin);
-	    mymax = ymax + 2 * (ymax - ymin);
+		ordre = new BucketOrder(n);
+		xmin = input.xmin - 1; 
+		xmax = input.xmax + 1;
+		ymin = input.ymin - 1;
+		ymax = input.ymax + 1;
 		
 		this.initMapCible();
 	    initBox(); 
@@ -82,58 +74,12 @@ public class ScatterTargets extends MotionAlgorithm {
 	}
 	
 	public void initGrid(){
-		
-		grid = new Integer[xmax - xmin + 1][ymax - ymin + 1][n];
-		
-	    /** Initialisation des obstacles **/ 
-	    for (int j=0; j<this.input.obstacles.size();j++) { 
-	    	int x = this.input.obstacles.getX(j);
-	    	int y = this.input.obstacles.getY(j); 
-	        for (int i=0;i<n;i++) { 
-	        	grid[x-xmin][y-ymin][i]=-1;
-	        }
-	    }
-	    /** calcul des distances : parcours en largeur **/ 
-		for (int i=0;i<n;i++) { 
-		    LinkedList<int[]> Q;
-		    Q = new LinkedList<int[]>();
-		    int sourceX = input.targets.getX(i);
-		    int sourceY = input.targets.getY(i);
-		    grid[sourceX-xmin][sourceY-ymin][i]=0;
-		    Q.add(new int[] {sourceX-xmin,sourceY-ymin}) ; 
-			while (!Q.isEmpty()) {
-			    int[] caseTablo= Q.pop();
-			    int x = caseTablo[0];
-			    int y = caseTablo[1]; 
-			    
-			    for (int dx=-1;dx<=1;dx=dx+2) {
-			    	if (x+dx<=xmax-xmin&& x+dx>=0) {
-			            if (grid[x+dx][y][i] == null) {
-			                grid[x+dx][y][i] = grid[x][y][i]+1;
-			                Q.add(new int[] {x +dx,y});
-			            }
-			    	}
-			    } 
-		        for (int dy=-1;dy<=1;dy=dy+2) {
-		        	if (y+dy<=ymax-ymin&&y+dy>=0) {
-				        if (grid[x][y+dy][i] == null) {
-				            grid[x][y+dy][i]  = grid[x][y][i]+1;
-				            Q.add(new int[] {x,y+dy});
-				        }
-		        	}
-		        }
-			}
-		}
+		grid = DistanceField.creer(input, input.targets);
 	}
 	
 	public void initMapCible(){
-		mapCible = new int[mxmax - mxmin + 1][mymax - mymin + 1];
+		mapCible = new TiledMap(-2);
 		int x,y;
-	    for (int i = 0; i < mapCible.length; i++){
-	        for (int j = 0; j < mapCible[i].length; j++){
-	            mapCible[i][j] = -2;
-	        }
-	    }
 	    for (int i = 0; i < input.n; i++){
 	        x = input.targets.getX(i);
 	        y = input.targets.getY(i);
@@ -241,15 +187,16 @@ public class ScatterTargets extends MotionAlgorithm {
 	
 	@Override
 	public void computeOneStep() {
-		Integer[] cibles = new Integer[n];
 		int i; 
 	    currentMoves = new byte[n];
+	    // Cibles par distance croissante (à distance égale, par indice croissant)
+	    ordre.initialiser();
 		for (i=0; i<n;i++) { 
-			cibles[i]=i;
+			ordre.cles[i] = getDistance(i,targets.getX(i),targets.getY(i));
 		}
-		Arrays.sort(cibles, (Integer a, Integer b) -> Integer.compare(getDistance(a,targets.getX(a),targets.getY(a)), getDistance(b,targets.getX(b),targets.getY(b))));
+		ordre.trier(false);
 		for (int k=0;k<n;k++) { 
-			i = cibles[k];
+			i = ordre.ordre[k];
 			moveTarget(i);
 		}
 		solution.addStep(currentMoves);
@@ -339,19 +286,17 @@ public class ScatterTargets extends MotionAlgorithm {
 	 */
 	
 	public int getMapCible(int x, int y) { 
-		return mapCible[x-mxmin][y-mymin];
+		return mapCible.get(x, y);
 	}
 	
 	public void setMapCible(int x, int y, int val) { 
-		mapCible[x-mxmin][y-mymin]= val;
+		mapCible.set(x, y, val);
 	}
 	
 	
 	public int getDistance(int i,int x, int y){
 		/**Renvoie la distance du robot i à sa source **/
-		/** les deux premiers termes correspondent au retour au rectangle connu**/
-		int dRetour= Math.max(Math.max(y-ymax,ymin-y),0)+Math.max(Math.max(x-xmax,xmin-x),0);
-		return dRetour + grid[Math.max(Math.min(x, xmax),xmin)-xmin][Math.max(Math.min(y, ymax),ymin)-ymin][i];
+		return grid.getDistance(i, x, y);
 	}
 	
 	public void afficheGrid(int i) {
@@ -386,12 +331,6 @@ public class ScatterTargets extends MotionAlgorithm {
 		return rotationD(rotationD(mov));
 	}
 	
-	public static void rotation180(byte[] step) {
-		for (int i = 0; i < step.length; i++) {
-			step[i] = rotation180(step[i]);
-		}
-	}
-	
 	public static byte rotationG(byte mov) { 
 		return rotationD(rotation180(mov));
 	}
@@ -1,10 +1,13 @@
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * A class defining a solution to the coordinated (robot) motion planning problem. <br>
- * 
- * The parallel-motion steps of all robots are stored in an ArrayList<byte[]>, whose 'k-th' element is an array of size 'n'.<br>
- * 
+ *
+ * The parallel-motion steps of all robots are packed one after the other in a single array of 64-bit words.
+ * Each step is stored either densely (3 bits per robot, 21 robots per word) or, when only a few robots move,
+ * as a sorted list of (robot, move) pairs (two pairs per word): the smaller of the two encodings is chosen for each step.<br>
+ * Reversed, inverted and concatenated solutions are views reading the stored steps (see SolutionView).<br>
+ *
  * @author Luca Castelli Aleardi (INF421, Ecole Polytechnique, nov 2020)
  *
  */
@@ -13,65 +16,333 @@ public class Solution {
 	/** Possible robot movements into Western, Eastern, Northern or Southern direction. (FIXED means that the robot is not moving) */
 	public final static byte FIXED=0, N=1, S=2, E=3, W=4;
 
+	/** Number of 3-bit movements stored in a 64-bit word (dense steps) */
+	final static int PAR_MOT=21;
+
 	/** Name of the input instance */
 	public String name;
-	
-	/** 
-	 * A dynamic array storing all motion parallel steps: 'k-th' element is an array of size 'n' representing
-	 * the displacement of all robots at time 'k'. <br>
-	 * Remark: if the 'i-th' is not moving at time 'k' then the corresponding entry in the array is FIXED (equal to 0)
+
+	/** Number of robots (given by the length of the first step, -1 as long as the solution is empty) **/
+	private int n=-1;
+
+	/** Number of words of a dense step **/
+	private int motsDense;
+
+	/**
+	 * All motion parallel steps, one after the other: step 'k' occupies the words debut[k] to debut[k+1]-1. <br>
+	 * A step is sparse exactly when it uses less than motsDense words (the encoding does not need to be stored)
 	 **/
-	public ArrayList<byte[]> steps;
-	
+	private long[] mots;
+	private int[] debut; // une case de plus que mouvants
+
+	/** Number of moving robots at each step **/
+	private int[] mouvants;
+
+	/** Number of steps and total number of robot moves, maintained by addStep/popStep **/
+	private int nbEtapes, distance;
+
+	/**
+	 * Partage avec les copies (voir copie) : les tableaux n'appartiennent qu'a une solution (proprietaire), qui peut ecrire apres
+	 * les 'partage' premieres etapes, lues par ses copies. Les autres solutions recopient les tableaux avant leur premiere ecriture
+	 **/
+	private boolean proprietaire=true;
+	private int partage=0;
+
 	/**
 	 * Initialize the motion of robots (no steps at the beginning)
 	 */
 	public Solution(String name) {
 		this.name=name;
-		this.steps=new ArrayList<byte[]>(); // empty list of steps at the beginning
+		this.mots=new long[16];
+		this.debut=new int[17];
+		this.mouvants=new int[16];
+	}
+
+	/**
+	 * Copy of the solution in constant time: the steps are shared, and copied by the first solution that
+	 * modifies a step the other one can read (copy-on-write)
+	 */
+	public Solution copie() {
+		Solution copie=new Solution(this.name);
+		copie.n=this.n;
+		copie.motsDense=this.motsDense;
+		copie.mots=this.mots;
+		copie.debut=this.debut;
+		copie.mouvants=this.mouvants;
+		copie.nbEtapes=this.nbEtapes;
+		copie.distance=this.distance;
+		copie.proprietaire=false;
+		this.partage=Math.max(this.partage, nbEtapes);
+		return copie;
+	}
+
+	/**
+	 * Recopie les etapes dans des tableaux propres a cette solution (avant d'ecrire dans des tableaux partages)
+	 */
+	private void detacher() {
+		int m=Math.max(2*nbEtapes, 16);
+		mots=Arrays.copyOf(mots, Math.max(2*debut[nbEtapes], 16));
+		mouvants=Arrays.copyOf(mouvants, m);
+		debut=Arrays.copyOf(debut, m+1);
+		proprietaire=true;
+		partage=0;
+	}
+
+	/**
+	 * Return this solution, with its steps stored (a view computes them, see SolutionView)
+	 */
+	public Solution materialize() {
+		return this;
 	}
-	
+
+	/**
+	 * Return a view of the solution read from its last step to its first (the steps are not copied)
+	 */
+	public Solution reversed() {
+		return new SolutionView(this).reversed();
+	}
+
+	/**
+	 * Return a view of the solution where every robot moves in the opposite direction (the steps are not copied)
+	 */
+	public Solution inverted() {
+		return new SolutionView(this).inverted();
+	}
+
+	/**
+	 * Return a view of this solution followed by 'suite' (the steps are not copied)
+	 */
+	public Solution concat(Solution suite) {
+		return new SolutionView(this).concat(suite);
+	}
+
 	/**
-	 * Add a new step to the current solution
+	 * Add a new step to the current solution: the movements are copied, 'mov' can be reused by the caller
 	 */
 	public void addStep(byte[] mov) {
-		if(mov!=null) {
-			this.steps.add(mov);
+		if(mov==null) {
+			return;
 		}
+		verifierRobots(mov.length);
+		int m=0;
+		for(int i=0;i<n;i++) {
+			if(mov[i]<FIXED || mov[i]>W) {
+				throw new Error("Error: movement not recognized");
+			}
+			if(mov[i]!=FIXED) {
+				m++;
+			}
+		}
+
+		int d=debut[nbEtapes];
+		int taille=reserver(m);
+		if(taille<motsDense) {
+			// Etape creuse : paires (robot << 3 | mouvement) de 32 bits, par robot croissant
+			int j=0;
+			for(int i=0;i<n;i++) {
+				if(mov[i]!=FIXED) {
+					mots[d+(j>>1)]|=((long) (i<<3 | mov[i])) << ((j&1)<<5);
+					j++;
+				}
+			}
+		} else {
+			for(int i=0;i<n;i++) {
+				mots[d+i/PAR_MOT]|=((long) mov[i]) << (3*(i%PAR_MOT));
+			}
+		}
+		terminer(taille, m);
+	}
+
+	/**
+	 * Add a new step of 'n' robots where only the robots robots[0] < robots[1] < ... < robots[nb-1] may move,
+	 * robot robots[k] moving by mov[robots[k]] (the other entries of 'mov' are ignored). <br>
+	 * Time proportional to nb (plus n/21 words when the step is stored densely), instead of n for addStep(byte[])
+	 */
+	public void addStep(int n, int[] robots, byte[] mov, int nb) {
+		verifierRobots(n);
+		int m=0;
+		for(int k=0;k<nb;k++) {
+			int i=robots[k];
+			if(i<0 || i>=n || (k>0 && i<=robots[k-1])) {
+				throw new Error("Error: the moving robots must be given in increasing order");
+			}
+			if(mov[i]<FIXED || mov[i]>W) {
+				throw new Error("Error: movement not recognized");
+			}
+			if(mov[i]!=FIXED) {
+				m++;
+			}
+		}
+
+		int d=debut[nbEtapes];
+		int taille=reserver(m);
+		int j=0;
+		for(int k=0;k<nb;k++) {
+			int i=robots[k];
+			if(mov[i]==FIXED) {
+				continue;
+			}
+			if(taille<motsDense) {
+				mots[d+(j>>1)]|=((long) (i<<3 | mov[i])) << ((j&1)<<5);
+				j++;
+			} else {
+				mots[d+i/PAR_MOT]|=((long) mov[i]) << (3*(i%PAR_MOT));
+			}
+		}
+		terminer(taille, m);
 	}
-	
-	public byte[] popStep() {
-		byte[] lastMove = null;
-		if (steps.size() > 0) {
-			lastMove = steps.get(steps.size()-1);
-			steps.remove(steps.size()-1);
+
+	/** Fixe le nombre de robots a la premiere etape, et le verifie ensuite */
+	private void verifierRobots(int robots) {
+		if(n==-1) {
+			n=robots;
+			motsDense=(n+PAR_MOT-1)/PAR_MOT;
+		}
+		if(robots!=n) {
+			throw new Error("Error: a step of "+robots+" robots cannot be added to a solution with "+n+" robots");
 		}
-		return lastMove;
+	}
+
+	/**
+	 * Reserve (et met a zero) les mots de l'etape suivante, qui a m robots en mouvement : renvoie leur nombre,
+	 * inferieur a motsDense si l'etape est stockee en paires
+	 */
+	private int reserver(int m) {
+		if(!proprietaire || nbEtapes<partage) {
+			detacher();
+		}
+		int d=debut[nbEtapes];
+		int taille=(m+1)/2 < motsDense ? (m+1)/2 : motsDense;
+		if(nbEtapes>=mouvants.length) {
+			mouvants=Arrays.copyOf(mouvants, 2*mouvants.length);
+			debut=Arrays.copyOf(debut, mouvants.length+1);
+		}
+		if(d+taille>mots.length) {
+			mots=Arrays.copyOf(mots, Math.max(2*mots.length, d+taille));
+		}
+		Arrays.fill(mots, d, d+taille, 0L);
+		return taille;
+	}
+
+	/** Enregistre l'etape dont les mots viennent d'etre remplis */
+	private void terminer(int taille, int m) {
+		mouvants[nbEtapes]=m;
+		debut[nbEtapes+1]=debut[nbEtapes]+taille;
+		nbEtapes++;
+		distance+=m;
+	}
+
+	/**
+	 * Remove the last step of the solution (if any)
+	 */
+	public void popStep() {
+		if (nbEtapes > 0) {
+			nbEtapes--;
+			distance-=mouvants[nbEtapes];
+		}
+	}
+
+	/**
+	 * Movement of robot 'i' at time 'k': constant time for a dense step,
+	 * binary search among the few moving robots for a sparse step
+	 */
+	public byte getMove(int k, int i) {
+		if(k<0 || k>=nbEtapes || i<0 || i>=n) {
+			throw new Error("Error: no movement for robot "+i+" at step "+k);
+		}
+		int d=debut[k];
+		if(debut[k+1]-d==motsDense) {
+			return (byte) ((mots[d+i/PAR_MOT] >>> (3*(i%PAR_MOT))) & 7);
+		}
+		int bas=0, haut=mouvants[k]-1;
+		while(bas<=haut) {
+			int milieu=(bas+haut)>>>1;
+			int paire=paire(d, milieu);
+			int j=paire>>>3;
+			if(j==i) {
+				return (byte) (paire & 7);
+			}
+			if(j<i) {
+				bas=milieu+1;
+			} else {
+				haut=milieu-1;
+			}
+		}
+		return FIXED;
+	}
+
+	/**
+	 * Return the movements of all robots at time 'k', as a new array of size 'n'
+	 */
+	public byte[] getStep(int k) {
+		return getStep(k, new byte[getRobots()]);
+	}
+
+	/**
+	 * Write the movements of all robots at time 'k' in 'mov' (of size at least 'n'), and return it
+	 */
+	public byte[] getStep(int k, byte[] mov) {
+		if(k<0 || k>=nbEtapes) {
+			throw new Error("Error: step "+k+" does not exist");
+		}
+		int d=debut[k];
+		if(debut[k+1]-d==motsDense) {
+			for(int i=0;i<n;i++) {
+				mov[i]=(byte) ((mots[d+i/PAR_MOT] >>> (3*(i%PAR_MOT))) & 7);
+			}
+		} else {
+			Arrays.fill(mov, 0, n, FIXED);
+			for(int j=0;j<mouvants[k];j++) {
+				int paire=paire(d, j);
+				mov[paire>>>3]=(byte) (paire & 7);
+			}
+		}
+		return mov;
+	}
+
+	/** 'j'-th (robot, move) pair of the sparse step starting at word 'd' */
+	private int paire(int d, int j) {
+		return (int) (mots[d+(j>>1)] >>> ((j&1)<<5));
+	}
+
+	/**
+	 * Number of robots moving at time 'k'
+	 */
+	public int getMovingRobots(int k) {
+		return mouvants[k];
+	}
+
+	/**
+	 * Number of robots of the solution (0 as long as no step has been added)
+	 */
+	public int getRobots() {
+		return Math.max(n, 0);
 	}
 
 	/**
 	 * The makespan is just the number of parallel steps (e.g. the time until all robots have reached their destinations).
-	 * 
+	 *
 	 * @return the makespan
 	 */
 	public int makespan() {
-		return this.steps.size();
+		return this.nbEtapes;
 	}
-	
+
 	/**
-	 * Compute and return the total distance traveled by all robots (until they have all reached their destinations).
+	 * Return the total distance traveled by all robots (until they have all reached their destinations).
 	 * @return the total traveled distance of all robots (in all steps)
 	 */
 	public int getTotalDistance() {
-		int result=0;
-		for(byte[] moves: this.steps) {
-			for(int i=0;i<moves.length;i++)
-				if(moves[i]!=Solution.FIXED)
-					result++;
-		}
-		return result;
+		return this.distance;
+	}
+
+	/**
+	 * Return the memory used by the steps (in bytes)
+	 */
+	public long memoryFootprint() {
+		return 8L * mots.length + 4L * debut.length + 4L * mouvants.length;
 	}
-	
+
 	public String toString() {
 		String result="Solution to the input instance: "+this.name+"\n";
 		result=result+"\tnumber of steps (makespan): "+this.makespan()+"\n";
@@ -0,0 +1,234 @@
+/**
+ * A solution read in other solutions without copying their steps: concatenation of parts, each part being
+ * a stored solution possibly read backwards, whose moves are translated through a 256-entry table (inversion of directions). <br>
+ *
+ * The parts are always stored solutions (views of views are flattened), and are read at each access:
+ * they must not be modified as long as the view is used. materialize() returns a stored copy.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+public class SolutionView extends Solution {
+
+	/** Table identite, et table qui remplace chaque direction par la direction opposee (FIXED reste FIXED) **/
+	static final byte[] IDENTITE = new byte[256], INVERSE = new byte[256];
+	static {
+		for (int c = 0; c < 256; c++) {
+			IDENTITE[c] = (byte) c;
+			INVERSE[c] = (byte) c;
+		}
+		INVERSE[N] = S;
+		INVERSE[S] = N;
+		INVERSE[E] = W;
+		INVERSE[W] = E;
+	}
+
+	/** Solutions stockees lues par la vue, dans l'ordre de la concatenation **/
+	final Solution[] parties;
+
+	/** renversee[p] : la partie p est lue de sa derniere etape a sa premiere **/
+	final boolean[] renversee;
+
+	/** tables[p][mouvement & 0xff] : mouvement lu pour la partie p **/
+	final byte[][] tables;
+
+	/** debut[p] : premiere etape de la vue lue dans la partie p (debut[nbParties] est le makespan) **/
+	final int[] debut;
+
+	/** Number of robots and total number of robot moves (the transformations do not change the number of moves) **/
+	final int n, distance;
+
+	/**
+	 * View of the stored solution 'solution', read as it is
+	 */
+	SolutionView(Solution solution) {
+		this(solution.name, new Solution[] {solution}, new boolean[] {false}, new byte[][] {IDENTITE});
+	}
+
+	SolutionView(String name, Solution[] parties, boolean[] renversee, byte[][] tables) {
+		super(name);
+		this.parties = parties;
+		this.renversee = renversee;
+		this.tables = tables;
+		debut = new int[parties.length + 1];
+		int robots = 0, total = 0;
+		for (int p = 0; p < parties.length; p++) {
+			debut[p + 1] = debut[p] + parties[p].makespan();
+			total += parties[p].getTotalDistance();
+			if (parties[p].makespan() > 0) {
+				if (robots > 0 && parties[p].getRobots() != robots) {
+					throw new Error("Error: solutions with " + robots + " and " + parties[p].getRobots() + " robots cannot be concatenated");
+				}
+				robots = parties[p].getRobots();
+			}
+		}
+		n = robots;
+		distance = total;
+	}
+
+	/**
+	 * Partie qui contient l'etape k de la vue (recherche dichotomique sur debut)
+	 */
+	int partie(int k) {
+		if (k < 0 || k >= makespan()) {
+			throw new Error("Error: step " + k + " does not exist");
+		}
+		int bas = 0, haut = parties.length - 1;
+		while (bas < haut) {
+			int milieu = (bas + haut + 1) >>> 1;
+			if (debut[milieu] <= k) {
+				bas = milieu;
+			} else {
+				haut = milieu - 1;
+			}
+		}
+		return bas;
+	}
+
+	/** Etape de la partie p lue a l'etape k de la vue */
+	int etape(int p, int k) {
+		return renversee[p] ? debut[p + 1] - 1 - k : k - debut[p];
+	}
+
+	@Override
+	public byte getMove(int k, int i) {
+		int p = partie(k);
+		return tables[p][parties[p].getMove(etape(p, k), i) & 0xff];
+	}
+
+	@Override
+	public byte[] getStep(int k, byte[] mov) {
+		int p = partie(k);
+		parties[p].getStep(etape(p, k), mov);
+		byte[] table = tables[p];
+		if (table != IDENTITE) {
+			for (int i = 0; i < n; i++) {
+				mov[i] = table[mov[i] & 0xff];
+			}
+		}
+		return mov;
+	}
+
+	@Override
+	public int getMovingRobots(int k) {
+		int p = partie(k);
+		return parties[p].getMovingRobots(etape(p, k));
+	}
+
+	@Override
+	public int getRobots() {
+		return n;
+	}
+
+	@Override
+	public int makespan() {
+		return debut[parties.length];
+	}
+
+	@Override
+	public int getTotalDistance() {
+		return distance;
+	}
+
+	@Override
+	public long memoryFootprint() {
+		long octets = 4L * debut.length + parties.length;
+		for (int p = 0; p < parties.length; p++) {
+			if (tables[p] != IDENTITE && tables[p] != INVERSE) {
+				octets += tables[p].length;
+			}
+		}
+		return octets;
+	}
+
+	@Override
+	public void addStep(byte[] mov) {
+		throw new Error("Error: a solution view cannot be modified (see materialize)");
+	}
+
+	@Override
+	public void addStep(int n, int[] robots, byte[] mov, int nb) {
+		throw new Error("Error: a solution view cannot be modified (see materialize)");
+	}
+
+	@Override
+	public void popStep() {
+		throw new Error("Error: a solution view cannot be modified (see materialize)");
+	}
+
+	@Override
+	public Solution copie() {
+		return materialize();
+	}
+
+	@Override
+	public Solution materialize() {
+		Solution solution = new Solution(name);
+		byte[] mov = new byte[n];
+		for (int k = 0; k < makespan(); k++) {
+			solution.addStep(getStep(k, mov));
+		}
+		return solution;
+	}
+
+	@Override
+	public Solution reversed() {
+		int m = parties.length;
+		Solution[] p = new Solution[m];
+		boolean[] r = new boolean[m];
+		byte[][] t = new byte[m][];
+		for (int q = 0; q < m; q++) {
+			p[q] = parties[m - 1 - q];
+			r[q] = !renversee[m - 1 - q];
+			t[q] = tables[m - 1 - q];
+		}
+		return new SolutionView(name, p, r, t);
+	}
+
+	@Override
+	public Solution inverted() {
+		int m = parties.length;
+		byte[][] t = new byte[m][];
+		for (int q = 0; q < m; q++) {
+			t[q] = composer(tables[q], INVERSE);
+		}
+		return new SolutionView(name, parties.clone(), renversee.clone(), t);
+	}
+
+	@Override
+	public Solution concat(Solution suite) {
+		SolutionView autre = suite instanceof SolutionView ? (SolutionView) suite : new SolutionView(suite);
+		int m = parties.length, l = autre.parties.length;
+		Solution[] p = new Solution[m + l];
+		boolean[] r = new boolean[m + l];
+		byte[][] t = new byte[m + l][];
+		System.arraycopy(parties, 0, p, 0, m);
+		System.arraycopy(autre.parties, 0, p, m, l);
+		System.arraycopy(renversee, 0, r, 0, m);
+		System.arraycopy(autre.renversee, 0, r, m, l);
+		System.arraycopy(tables, 0, t, 0, m);
+		System.arraycopy(autre.tables, 0, t, m, l);
+		return new SolutionView(name, p, r, t);
+	}
+
+	/**
+	 * Table qui applique 'premiere' puis 'seconde' (les tables usuelles sont partagees)
+	 */
+	static byte[] composer(byte[] premiere, byte[] seconde) {
+		if (premiere == IDENTITE) {
+			return seconde;
+		}
+		if (seconde == IDENTITE) {
+			return premiere;
+		}
+		if (premiere == INVERSE && seconde == INVERSE) {
+			return IDENTITE;
+		}
+		byte[] table = new byte[256];
+		for (int c = 0; c < 256; c++) {
+			table[c] = seconde[premiere[c] & 0xff];
+		}
+		return table;
+	}
+}
@@ -0,0 +1,273 @@
+/**
+ * Streaming writer of solutions (and instances) in the JSON format of {@link IO}. <br>
+ *
+ * Each step is encoded directly in a reusable byte buffer (no intermediate String) which is flushed to a FileChannel.
+ * The file is written under a temporary name then renamed, so that a crash never leaves a partially written solution.
+ * A writer is not thread-safe: each thread uses its own (see IO.saveSolutionToJSON).
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SolutionWriter {
+	
+	/** Lettre de chaque mouvement, indexee par le byte du mouvement (0 immobile) **/
+	static final byte[] LETTRES = {0, 'N', 'S', 'E', 'W'};
+	
+	/** Tampon d'ecriture, reutilise d'un fichier a l'autre **/
+	final byte[] octets = new byte[1 << 16];
+	final ByteBuffer tampon = ByteBuffer.wrap(octets);
+	int position = 0;
+	
+	/** Canal du fichier en cours d'ecriture **/
+	FileChannel canal;
+	
+	/** Contenu d'un fichier, ecrit dans le tampon **/
+	interface Contenu {
+		void ecrire() throws IOException;
+	}
+	
+	/**
+	 * Ecrit la solution dans le fichier de nom output
+	 */
+	public void ecrire(Solution solution, String output) throws IOException {
+		ecrireFichier(output, () -> ecrireSolution(solution));
+	}
+	
+	/**
+	 * Ecrit l'instance dans le fichier de nom output (sans meta donnees)
+	 */
+	public void ecrire(Instance instance, String output) throws IOException {
+		ecrireFichier(output, () -> ecrireInstance(instance));
+	}
+	
+	/**
+	 * Ecrit le contenu dans un fichier temporaire du repertoire de output, puis le renomme en output
+	 */
+	void ecrireFichier(String output, Contenu contenu) throws IOException {
+		Path fichier = Paths.get(output).toAbsolutePath();
+		if (fichier.getParent() != null) {
+			Files.createDirectories(fichier.getParent());
+		}
+		Path temporaire = temporaire(fichier);
+		try {
+			try (FileChannel c = FileChannel.open(temporaire, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				canal = c;
+				position = 0;
+				contenu.ecrire();
+				vider();
+				// Les donnees sont sur le disque avant le renommage : apres un arret brutal, output est l'ancien fichier ou le nouveau, complet
+				c.force(true);
+			} finally {
+				canal = null;
+			}
+			remplacer(temporaire, fichier);
+		} finally {
+			Files.deleteIfExists(temporaire);
+		}
+	}
+	
+	/**
+	 * Nom temporaire unique a cote de fichier, a creer avec CREATE_NEW : contrairement a Files.createTempFile
+	 * (droits 0600), le fichier a les droits par defaut, comme un fichier ecrit directement
+	 */
+	static Path temporaire(Path fichier) {
+		String nom = "." + fichier.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp";
+		return fichier.resolveSibling(nom);
+	}
+	
+	/**
+	 * Renomme le fichier temporaire en fichier (de maniere atomique si le systeme de fichiers le permet)
+	 */
+	static void remplacer(Path temporaire, Path fichier) throws IOException {
+		try {
+			Files.move(temporaire, fichier, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	void ecrireSolution(Solution solution) throws IOException {
+		ecrire("{\n");
+		ecrire("  \"instance\": \"");
+		ecrireChaine(solution.name);
+		ecrire("\",\n");
+		ecrire("  \"steps\": [\n");
+		int makespan = solution.makespan();
+		byte[] mouvements = new byte[solution.getRobots()];
+		for (int k = 0; k < makespan; k++) {
+			solution.getStep(k, mouvements);
+			ecrire('\t');
+			ecrire('{');
+			boolean premier = true;
+			for (int i = 0; i < mouvements.length; i++) {
+				if (mouvements[i] == Solution.FIXED) {
+					continue;
+				}
+				if (mouvements[i] < 0 || mouvements[i] >= LETTRES.length) {
+					throw new Error("Error: movement not recognized");
+				}
+				// Au plus 20 octets par robot : on vide le tampon avant s'il n'y a plus la place
+				if (position + 32 > octets.length) {
+					vider();
+				}
+				if (!premier) {
+					octets[position++] = ',';
+					octets[position++] = ' ';
+				}
+				premier = false;
+				octets[position++] = '"';
+				ecrireEntier(i);
+				octets[position++] = '"';
+				octets[position++] = ':';
+				octets[position++] = ' ';
+				octets[position++] = '"';
+				octets[position++] = LETTRES[mouvements[i]];
+				octets[position++] = '"';
+			}
+			ecrire('}');
+			if (k != makespan - 1) { // add only for the steps 0, 1, ..., k-2
+				ecrire(',');
+			}
+			ecrire('\n');
+		}
+		ecrire("  ]\n");
+		ecrire("}\n");
+	}
+	
+	void ecrireInstance(Instance instance) throws IOException {
+		ecrire("{\n");
+		ecrire("  \"name\": \"");
+		ecrireChaine(instance.name);
+		ecrire("\",\n");
+		ecrirePositions("starts", instance.starts);
+		ecrire(",\n");
+		ecrirePositions("targets", instance.targets);
+		ecrire(",\n");
+		ecrirePositions("obstacles", instance.obstacles);
+		ecrire("\n}\n");
+	}
+	
+	void ecrirePositions(String nom, Coordinates positions) throws IOException {
+		ecrire("  \"");
+		ecrire(nom);
+		ecrire("\": [");
+		int m = positions == null ? 0 : positions.size();
+		for (int k = 0; k < m; k++) {
+			if (position + 32 > octets.length) {
+				vider();
+			}
+			if (k > 0) {
+				octets[position++] = ',';
+				octets[position++] = ' ';
+			}
+			octets[position++] = '[';
+			ecrireEntier(positions.getX(k));
+			octets[position++] = ',';
+			octets[position++] = ' ';
+			ecrireEntier(positions.getY(k));
+			octets[position++] = ']';
+		}
+		ecrire(']');
+	}
+	
+	/**
+	 * Ecrit l'entier i en decimal (le tampon doit avoir la place)
+	 */
+	void ecrireEntier(int i) {
+		if (i < 0) {
+			octets[position++] = '-';
+			if (i == Integer.MIN_VALUE) {
+				octets[position++] = '2';
+				i = 147483648;
+			} else {
+				i = -i;
+			}
+		}
+		int debut = position;
+		do {
+			octets[position++] = (byte) ('0' + i % 10);
+			i /= 10;
+		} while (i > 0);
+		// Les chiffres ont ete ecrits a l'envers
+		for (int a = debut, b = position - 1; a < b; a++, b--) {
+			byte c = octets[a];
+			octets[a] = octets[b];
+			octets[b] = c;
+		}
+	}
+	
+	void ecrire(char c) throws IOException {
+		if (position == octets.length) {
+			vider();
+		}
+		octets[position++] = (byte) c;
+	}
+	
+	void ecrire(String s) throws IOException {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		for (int k = 0; k < b.length; k++) {
+			if (position == octets.length) {
+				vider();
+			}
+			octets[position++] = b[k];
+		}
+	}
+	
+	/**
+	 * Ecrit le contenu d'une chaine JSON (sans les guillemets) : les guillemets, les barres obliques inverses et
+	 * les caracteres de controle sont echappes. Un nom null est ecrit "null", comme l'ancienne concatenation
+	 */
+	void ecrireChaine(String s) throws IOException {
+		if (s == null) {
+			ecrire("null");
+			return;
+		}
+		for (int k = 0; k < s.length(); k++) {
+			char c = s.charAt(k);
+			if (c == '"' || c == '\\') {
+				ecrire('\\');
+				ecrire(c);
+			} else if (c == '\n') {
+				ecrire("\\n");
+			} else if (c == '\r') {
+				ecrire("\\r");
+			} else if (c == '\t') {
+				ecrire("\\t");
+			} else if (c < 0x20) {
+				ecrire(String.format("\\u%04x", (int) c));
+			} else {
+				int fin = k + 1;
+				while (fin < s.length() && s.charAt(fin) >= 0x20 && s.charAt(fin) != '"' && s.charAt(fin) != '\\') {
+					fin++;
+				}
+				ecrire(s.substring(k, fin));
+				k = fin - 1;
+			}
+		}
+	}
+	
+	/**
+	 * Ecrit le contenu du tampon dans le canal
+	 */
+	void vider() throws IOException {
+		tampon.clear();
+		tampon.limit(position);
+		while (tampon.hasRemaining()) {
+			canal.write(tampon);
+		}
+		position = 0;
+	}
+}
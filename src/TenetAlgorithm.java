@@ -53,9 +53,11 @@ public class TenetAlgorithm extends MotionAlgorithm {
 	 * Compute a complete solution to the input problem: compute all steps, until all robots reach their target destinations
 	 */
 	public void run() {
-		byte[] step;
 		Coordinates targets;
 		
+		// Les champs de distance aux vraies cibles sont partages entre les executions successives sur cette instance
+		DistanceCache.enregistrer(input);
+		
 	    //Dilatation des cibles 
 		Instance input0 = new Instance(input.name, input.starts, input.targets, input.obstacles);
 	    ScatterTargets mt = new ScatterTargets(input0);
@@ -90,8 +92,7 @@ public class TenetAlgorithm extends MotionAlgorithm {
 	    	PriorityAlgorithm3 algo3 = new PriorityAlgorithm3(input3, algo2.robots);
 		    algo3.run();
 		    for (int i = algo3.solution.steps.size() - 1; i >=0 ; i--) {
-		    	step = algo3.solution.steps.get(i);
-		    	algo2.solution.addStep(step);
+		    	algo2.solution.addStep(algo3.solution.steps.get(i));
 		    }
 		    if (algo3.tousArrives)
 		    	algo2.tousArrives = true;
@@ -102,13 +103,9 @@ public class TenetAlgorithm extends MotionAlgorithm {
 	    IO.saveSolutionToJSON(algo2.solution, input.name + "_algo2.json");
 	    **/
 	    
-	    solution = algo1.solution;
-	    
-	    for (int i = algo2.solution.steps.size() - 1; i >=0 ; i--) {
-	    	step = algo2.solution.steps.get(i);
-	    	rotation180(step);
-	    	solution.addStep(step);
-	    }
+	    // algo2 part des cibles : ses etapes sont lues a l'envers, dans la direction opposee, sans etre copiees
+	    // (la vue n'est parcourue que si la solution est enregistree)
+	    solution = algo1.solution.concat(algo2.solution.reversed().inverted());
 		
 	    if (algo2.tousArrives) {
 	    	System.out.println("Solution computed");
@@ -151,12 +148,6 @@ public class TenetAlgorithm extends MotionAlgorithm {
 		return rotationD(rotationD(mov));
 	}
 	
-	public static void rotation180(byte[] step) {
-		for (int i = 0; i < step.length; i++) {
-			step[i] = rotation180(step[i]);
-		}
-	}
-	
 	public static byte rotationG(byte mov) { 
 		return rotationD(rotation180(mov));
 	}
@@ -0,0 +1,157 @@
+/**
+ * Occupancy map of the (unbounded) grid, made of square tiles of primitive values allocated on first write. <br>
+ *
+ * Reading a cell of a tile that was never written returns the default value. The tiles are found through
+ * an open-addressing hash table indexed by the tile coordinates, so that getMap/setMap are in O(1) and the
+ * memory used only depends on the cells where robots actually go. <br>
+ *
+ * copie() returns a copy sharing all the tiles: a shared tile is copied the first time one of the two maps writes in it.
+ *
+ * @author Gonzague de Carpentier (Ecole Polytechnique)
+ * @author Dan Meller (Ecole Polytechnique)
+ */
+
+import java.util.Arrays;
+
+public class TiledMap {
+	
+	/** Une tuile contient COTE x COTE cases **/
+	static final int LOG_COTE = 5;
+	static final int COTE = 1 << LOG_COTE;
+	static final int MASQUE = COTE - 1;
+	
+	/** Valeur des cases jamais ecrites **/
+	public final int defaut;
+	
+	/** Table de hachage des tuiles : cles[k] contient les coordonnees de la tuile tuiles[k] (tuiles[k] == null si la place est libre) **/
+	long[] cles;
+	int[][] tuiles;
+	int nbTuiles = 0;
+	
+	/** partagees[k] vaut true si tuiles[k] peut aussi appartenir a une copie de la carte (a recopier avant d'ecrire) **/
+	boolean[] partagees;
+	
+	/** Derniere tuile utilisee (les acces successifs sont souvent dans la meme tuile) **/
+	long derniereCle;
+	int[] derniereTuile;
+	boolean dernierePartagee;
+	
+	public TiledMap(int defaut) {
+		this.defaut = defaut;
+		cles = new long[64];
+		tuiles = new int[64][];
+		partagees = new boolean[64];
+	}
+	
+	/**
+	 * Renvoie une copie de la carte en O(nombre de tuiles) : les tuiles sont partagees et recopiees a la premiere ecriture
+	 */
+	public TiledMap copie() {
+		TiledMap copie = new TiledMap(defaut);
+		copie.cles = cles.clone();
+		copie.tuiles = tuiles.clone();
+		copie.nbTuiles = nbTuiles;
+		Arrays.fill(partagees, true);
+		dernierePartagee = true;
+		copie.partagees = partagees.clone();
+		return copie;
+	}
+	
+	/**
+	 * Return the value of the cell (x, y)
+	 */
+	public int get(int x, int y) {
+		int[] tuile = tuile(x, y, false);
+		if (tuile == null) {
+			return defaut;
+		}
+		return tuile[((x & MASQUE) << LOG_COTE) | (y & MASQUE)];
+	}
+	
+	/**
+	 * Set the value of the cell (x, y), allocating its tile if needed
+	 */
+	public void set(int x, int y, int val) {
+		tuile(x, y, true)[((x & MASQUE) << LOG_COTE) | (y & MASQUE)] = val;
+	}
+	
+	/**
+	 * Renvoie la tuile contenant la case (x,y) (null si elle n'existe pas). Si creer vaut true, la tuile va etre modifiee :
+	 * elle est creee si elle n'existe pas, et recopiee si elle est partagee avec une copie
+	 */
+	int[] tuile(int x, int y, boolean creer) {
+		long cle = ((long) (x >> LOG_COTE) << 32) | ((y >> LOG_COTE) & 0xffffffffL);
+		if (derniereTuile != null && cle == derniereCle && !(creer && dernierePartagee)) {
+			return derniereTuile;
+		}
+		int k = place(cles, tuiles, cle);
+		if (tuiles[k] == null) {
+			if (!creer) {
+				return null;
+			}
+			if (2 * (nbTuiles + 1) > tuiles.length) {
+				agrandir();
+				k = place(cles, tuiles, cle);
+			}
+			int[] tuile = new int[COTE * COTE];
+			Arrays.fill(tuile, defaut);
+			cles[k] = cle;
+			tuiles[k] = tuile;
+			partagees[k] = false;
+			nbTuiles++;
+		} else if (creer && partagees[k]) {
+			tuiles[k] = tuiles[k].clone();
+			partagees[k] = false;
+		}
+		derniereCle = cle;
+		derniereTuile = tuiles[k];
+		dernierePartagee = partagees[k];
+		return derniereTuile;
+	}
+	
+	/**
+	 * Renvoie la place de la cle dans la table (sondage lineaire) : soit celle ou elle se trouve, soit la premiere place libre
+	 */
+	static int place(long[] cles, int[][] tuiles, long cle) {
+		long h = cle * 0x9E3779B97F4A7C15L;
+		int k = (int) (h >>> 40) & (tuiles.length - 1);
+		while (tuiles[k] != null && cles[k] != cle) {
+			k = (k + 1) & (tuiles.length - 1);
+		}
+		return k;
+	}
+	
+	/**
+	 * Double la taille de la table de hachage
+	 */
+	void agrandir() {
+		long[] nouvellesCles = new long[2 * cles.length];
+		int[][] nouvellesTuiles = new int[2 * tuiles.length][];
+		boolean[] nouvellesPartagees = new boolean[2 * tuiles.length];
+		for (int k = 0; k < tuiles.length; k++) {
+			if (tuiles[k] != null) {
+				int j = place(nouvellesCles, nouvellesTuiles, cles[k]);
+				nouvellesCles[j] = cles[k];
+				nouvellesTuiles[j] = tuiles[k];
+				nouvellesPartagees[j] = partagees[k];
+			}
+		}
+		cles = nouvellesCles;
+		tuiles = nouvellesTuiles;
+		partagees = nouvellesPartagees;
+	}
+	
+	/**
+	 * Return the number of allocated tiles
+	 */
+	public int nbTuiles() {
+		return nbTuiles;
+	}
+	
+	/**
+	 * Return the memory used by the map (in bytes)
+	 */
+	public long memoryFootprint() {
+		return 12L * tuiles.length + 4L * COTE * COTE * nbTuiles;
+	}
+}